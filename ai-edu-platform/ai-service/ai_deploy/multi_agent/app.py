@@ -1,7 +1,7 @@
 from fastapi import FastAPI, HTTPException, Request, File, UploadFile
 from fastapi.middleware.cors import CORSMiddleware
 from fastapi.responses import StreamingResponse
-from pydantic import BaseModel
+from pydantic import BaseModel, Field
 from typing import List, Dict, Any, Optional
 import os
 import json
@@ -56,6 +56,8 @@ class ChatRequest(BaseModel):
     conversation_id: Optional[str] = None
     history: Optional[List[Dict[str, Any]]] = None
     use_rag: bool = True
+    # 后端已完成的知识库检索结果，存在时不再检索本地知识库
+    rag_context: Optional[List[Dict[str, Any]]] = Field(None, alias="ragContext")
 
 class ChatResponse(BaseModel):
     conversation_id: str
@@ -160,6 +162,24 @@ def load_knowledge_base(index_name="default"):
 # 尝试加载知识库
 knowledge_base = load_knowledge_base()
 
+def format_rag_context(chunks):
+    """
+    将后端发送的检索结果转换为RAG上下文和引用，格式与本地知识库检索一致
+    """
+    if not chunks:
+        return "", []
+    contents = [chunk.get("content", "") for chunk in chunks]
+    rag_context = "\n\n参考资料:\n" + "\n".join(contents)
+    references = []
+    for i, content in enumerate(contents):
+        references.append({
+            "id": f"ref_{i+1}",
+            "content": content,
+            "relevance": "高" if i == 0 else "中" if i == 1 else "低"
+        })
+    logger.info(f"已使用后端检索结果，长度: {len(rag_context)}")
+    return rag_context, references
+
 # 智能体配置
 def create_agents(conversation_type, user_role, use_rag=True, query=None):
     """
@@ -318,7 +338,10 @@ async def chat(request: ChatRequest):
         # 准备RAG上下文和引用
         rag_context = ""
         references = []
-        if request.use_rag and knowledge_base:
+        if request.rag_context is not None:
+            # 使用后端随请求发送的检索结果
+            rag_context, references = format_rag_context(request.rag_context)
+        elif request.use_rag and knowledge_base:
             try:
                 # 从知识库检索相关文档
                 docs = knowledge_base.similarity_search(request.message, k=3)
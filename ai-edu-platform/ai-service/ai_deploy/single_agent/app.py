@@ -1,7 +1,7 @@
 from fastapi import FastAPI, HTTPException, Request, Body, File, UploadFile
 from fastapi.middleware.cors import CORSMiddleware
 from fastapi.responses import StreamingResponse
-from pydantic import BaseModel
+from pydantic import BaseModel, Field
 from typing import List, Dict, Any, Optional
 import os
 import json
@@ -57,6 +57,8 @@ class LessonPlanRequest(BaseModel):
     custom_requirements: Optional[str] = None
     use_rag: bool = True
     user_id: Optional[str] = None
+    # 后端已完成的知识库检索结果，存在时不再检索本地知识库
+    rag_context: Optional[List[Dict[str, Any]]] = Field(None, alias="ragContext")
 
 class LessonPlanResponse(BaseModel):
     id: str
@@ -251,7 +253,12 @@ async def generate_lesson_plan(request: LessonPlanRequest):
     try:
         # 准备上下文
         context = ""
-        if request.use_rag and knowledge_base:
+        if request.rag_context is not None:
+            # 使用后端随请求发送的检索结果
+            if request.rag_context:
+                context = "相关参考资料:\n" + "\n".join([chunk.get("content", "") for chunk in request.rag_context])
+                logger.info(f"已使用后端检索结果，长度: {len(context)}")
+        elif request.use_rag and knowledge_base:
             # 构建查询
             query = f"{request.grade} {request.module} {request.knowledge_point}"
             # 从知识库检索相关文档
@@ -32,6 +32,7 @@ public class AIEduPlatformApplication {
                         )
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Next-Cursor", "Retry-After") // 分页游标和限流重试时间
                         .allowCredentials(true);
             }
         };
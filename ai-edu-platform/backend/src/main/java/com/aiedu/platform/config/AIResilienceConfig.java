@@ -0,0 +1,134 @@
+package com.aiedu.platform.config;
+
+import com.aiedu.platform.service.AIService;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * AI服务熔断与隔离配置
+ * 多智能体和单智能体服务各有一个熔断器，对话和教案生成各有独立的并发隔离舱，
+ * 一条链路变慢或不可用时不会占满另一条链路和整个后端的资源。
+ * 隔离舱位于自适应并发限制器之内，调用获得限制器许可后才占用隔离舱，限制器的上限不应超过两个隔离舱之和。
+ * 流式对话使用单独的熔断器且不做慢调用判定：流的耗时取决于回答长度，
+ * 长回答本身不代表上游异常，不能因此把非流式对话一起熔断
+ */
+@Configuration
+public class AIResilienceConfig {
+
+    @Value("${ai.resilience.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${ai.resilience.circuit-breaker.slow-call-rate-threshold:80}")
+    private float slowCallRateThreshold;
+
+    @Value("${ai.resilience.circuit-breaker.slow-call-duration-ms:60000}")
+    private long slowCallDurationMs;
+
+    @Value("${ai.resilience.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${ai.resilience.circuit-breaker.minimum-number-of-calls:10}")
+    private int minimumNumberOfCalls;
+
+    @Value("${ai.resilience.circuit-breaker.wait-duration-in-open-state-ms:30000}")
+    private long waitDurationInOpenStateMs;
+
+    @Value("${ai.resilience.circuit-breaker.permitted-calls-in-half-open-state:3}")
+    private int permittedCallsInHalfOpenState;
+
+    @Bean
+    public CircuitBreakerRegistry aiCircuitBreakerRegistry() {
+        return CircuitBreakerRegistry.of(circuitBreakerConfig());
+    }
+
+    @Bean
+    public BulkheadRegistry aiBulkheadRegistry() {
+        return BulkheadRegistry.ofDefaults();
+    }
+
+    @Bean
+    public CircuitBreaker multiAgentCircuitBreaker(CircuitBreakerRegistry aiCircuitBreakerRegistry) {
+        return aiCircuitBreakerRegistry.circuitBreaker("multi-agent");
+    }
+
+    @Bean
+    public CircuitBreaker multiAgentStreamCircuitBreaker(CircuitBreakerRegistry aiCircuitBreakerRegistry) {
+        return aiCircuitBreakerRegistry.circuitBreaker("multi-agent-stream", streamCircuitBreakerConfig());
+    }
+
+    @Bean
+    public CircuitBreaker singleAgentCircuitBreaker(CircuitBreakerRegistry aiCircuitBreakerRegistry) {
+        return aiCircuitBreakerRegistry.circuitBreaker("single-agent");
+    }
+
+    @Bean
+    public Bulkhead chatBulkhead(BulkheadRegistry aiBulkheadRegistry,
+                                 @Value("${ai.resilience.bulkhead.chat.max-concurrent-calls:20}") int maxConcurrentCalls) {
+        return aiBulkheadRegistry.bulkhead("chat", bulkheadConfig(maxConcurrentCalls));
+    }
+
+    @Bean
+    public Bulkhead lessonPlanBulkhead(BulkheadRegistry aiBulkheadRegistry,
+                                       @Value("${ai.resilience.bulkhead.lesson-plan.max-concurrent-calls:8}") int maxConcurrentCalls) {
+        return aiBulkheadRegistry.bulkhead("lesson-plan", bulkheadConfig(maxConcurrentCalls));
+    }
+
+    /**
+     * 只有上游故障（连接异常、超时、429和5xx）计入失败率，4xx等调用方错误不会触发熔断
+     * @return 熔断器配置
+     */
+    private CircuitBreakerConfig circuitBreakerConfig() {
+        return baseCircuitBreakerConfig()
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .build();
+    }
+
+    /**
+     * 流式调用只按失败率熔断，慢调用阈值设为100%且判定时长远超任何一次流式回答，相当于关闭慢调用判定
+     * @return 流式熔断器配置
+     */
+    private CircuitBreakerConfig streamCircuitBreakerConfig() {
+        return baseCircuitBreakerConfig()
+                .slowCallRateThreshold(100)
+                .slowCallDurationThreshold(Duration.ofDays(1))
+                .build();
+    }
+
+    /**
+     * 熔断器公共配置
+     * @return 熔断器配置构建器
+     */
+    private CircuitBreakerConfig.Builder baseCircuitBreakerConfig() {
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(Duration.ofMillis(waitDurationInOpenStateMs))
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(AIService::isUpstreamFailure);
+    }
+
+    /**
+     * 隔离舱满时立即拒绝，不排队等待
+     * @param maxConcurrentCalls 最大并发调用数
+     * @return 隔离舱配置
+     */
+    private static BulkheadConfig bulkheadConfig(int maxConcurrentCalls) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+    }
+}
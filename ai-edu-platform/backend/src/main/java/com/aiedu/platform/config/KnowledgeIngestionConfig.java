@@ -0,0 +1,29 @@
+package com.aiedu.platform.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 知识库导入线程池配置
+ * 线程数即同时进行的向量化和写入批次数，所有上传共享，避免大文件导入占满向量化服务的配额
+ */
+@Configuration
+public class KnowledgeIngestionConfig {
+
+    @Bean(name = "knowledgeIngestionExecutor")
+    public ThreadPoolTaskExecutor knowledgeIngestionExecutor(
+            @Value("${rag.ingestion.parallelism:4}") int parallelism,
+            @Value("${rag.ingestion.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("knowledge-ingestion-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
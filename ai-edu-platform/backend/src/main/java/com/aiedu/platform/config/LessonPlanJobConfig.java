@@ -0,0 +1,33 @@
+package com.aiedu.platform.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+/**
+ * 教案生成任务线程池配置
+ * 线程数和队列长度都有上限，队列满时拒绝新任务，由调用方返回繁忙响应
+ */
+@Configuration
+public class LessonPlanJobConfig {
+
+    @Bean(name = "lessonPlanJobExecutor")
+    public ThreadPoolTaskExecutor lessonPlanJobExecutor(
+            @Value("${lesson-plan.jobs.core-pool-size:4}") int corePoolSize,
+            @Value("${lesson-plan.jobs.max-pool-size:8}") int maxPoolSize,
+            @Value("${lesson-plan.jobs.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("lesson-plan-job-");
+        // 任务在提交者的安全上下文中执行
+        executor.setTaskDecorator(DelegatingSecurityContextRunnable::new);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
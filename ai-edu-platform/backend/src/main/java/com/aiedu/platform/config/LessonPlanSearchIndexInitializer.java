@@ -0,0 +1,52 @@
+package com.aiedu.platform.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 教案搜索索引初始化器
+ * Hibernate的ddl-auto无法创建生成列和GIN索引，因此在表结构更新后以幂等的DDL补充：
+ * search_vector为标题、知识点和教学过程的加权tsvector生成列，
+ * 标题和知识点另建pg_trgm索引，用于不以空格分词的中文子串匹配
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class LessonPlanSearchIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(LessonPlanSearchIndexInitializer.class);
+
+    private static final String[] STATEMENTS = {
+            "alter table lesson_plans add column if not exists search_vector tsvector generated always as ("
+                    + "setweight(to_tsvector('simple'::regconfig, coalesce(title, '')), 'A') || "
+                    + "setweight(to_tsvector('simple'::regconfig, coalesce(knowledge_point, '')), 'B') || "
+                    + "setweight(to_tsvector('simple'::regconfig, coalesce(teaching_process, '')), 'C')) stored",
+            "create index if not exists idx_lesson_plans_search on lesson_plans using gin (search_vector)",
+            "create index if not exists idx_lesson_plans_user_facets on lesson_plans (user_id, grade, module, duration)",
+            "create extension if not exists pg_trgm",
+            "create index if not exists idx_lesson_plans_title_trgm on lesson_plans using gin "
+                    + "((coalesce(title, '') || ' ' || coalesce(knowledge_point, '')) gin_trgm_ops)"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 逐条执行DDL，某一条失败（例如没有创建扩展的权限）不影响其余索引，搜索仍可退化为顺序扫描
+     */
+    @PostConstruct
+    public void createSearchIndexes() {
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                logger.warn("无法创建教案搜索索引: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.aiedu.platform.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 消息序号初始化器
+ * 引入message_order之前创建的对话没有消息序号（conversations.message_count为空），
+ * 在接收请求之前按创建时间为这些对话的消息编号并写入消息计数，使消息列表等读接口不需要回填数据
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class MessageOrderInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(MessageOrderInitializer.class);
+
+    private static final String BACKFILL_ORDER_SQL =
+            "update messages m set message_order = s.rn from ("
+                    + "select id, row_number() over (partition by conversation_id order by created_at, id) as rn "
+                    + "from messages where conversation_id in (select id from conversations where message_count is null)"
+                    + ") s where m.id = s.id";
+
+    private static final String BACKFILL_COUNT_SQL =
+            "update conversations c set message_count = "
+                    + "(select count(*) from messages m where m.conversation_id = c.id) "
+                    + "where c.message_count is null";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 在同一事务中回填消息序号和消息计数，已回填的对话不会被再次处理
+     */
+    @PostConstruct
+    public void backfillMessageOrder() {
+        try {
+            Integer conversations = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(BACKFILL_ORDER_SQL);
+                return jdbcTemplate.update(BACKFILL_COUNT_SQL);
+            });
+            if (conversations != null && conversations > 0) {
+                logger.info("已为{}个旧对话回填消息序号", conversations);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("无法回填消息序号: {}", e.getMessage());
+        }
+    }
+}
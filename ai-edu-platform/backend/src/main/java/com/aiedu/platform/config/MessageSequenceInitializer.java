@@ -0,0 +1,50 @@
+package com.aiedu.platform.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 消息ID序列初始化器
+ * messages表原先使用自增主键，切换到预分配的messages_seq序列后，
+ * 需要在接收请求之前把序列推进到现有最大ID之后，避免主键冲突
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class MessageSequenceInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(MessageSequenceInitializer.class);
+
+    // 与Message实体的allocationSize保持一致
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 只有当现有ID超出序列已分配的范围时才推进序列，多个实例同时启动时不会回退序列
+     */
+    @PostConstruct
+    public void alignSequence() {
+        try {
+            Long value = jdbcTemplate.queryForObject(
+                    "select setval('messages_seq', m.max_id + 1, false) "
+                            + "from (select coalesce(max(id), 0) as max_id from messages) m, messages_seq s "
+                            + "where m.max_id >= s.last_value + case when s.is_called then ? else 0 end",
+                    Long.class, ALLOCATION_SIZE);
+            if (value != null) {
+                logger.info("已将messages_seq推进到 {}", value);
+            }
+        } catch (EmptyResultDataAccessException e) {
+            // 序列已经在现有ID之后，无需调整
+        } catch (DataAccessException e) {
+            logger.warn("无法校准messages_seq序列: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.aiedu.platform.config;
+
+import com.aiedu.platform.service.AdaptiveConcurrencyLimiter;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 监控指标配置，注册熔断器、隔离舱和自适应并发限制器的指标
+ * HTTP请求、HikariCP连接池和Spring Data仓库调用的指标由Actuator自动注册
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder aiCircuitBreakerMetrics(CircuitBreakerRegistry aiCircuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(aiCircuitBreakerRegistry);
+    }
+
+    @Bean
+    public MeterBinder aiBulkheadMetrics(BulkheadRegistry aiBulkheadRegistry) {
+        return TaggedBulkheadMetrics.ofBulkheadRegistry(aiBulkheadRegistry);
+    }
+
+    @Bean
+    public MeterBinder aiConcurrencyLimiterMetrics(AdaptiveConcurrencyLimiter limiter) {
+        return registry -> {
+            Gauge.builder("ai.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("当前的自适应并发上限")
+                    .register(registry);
+            Gauge.builder("ai.limiter.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("在途的AI上游调用数")
+                    .register(registry);
+            Gauge.builder("ai.limiter.waiting", limiter, AdaptiveConcurrencyLimiter::getWaiting)
+                    .description("等待并发许可的调用数")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.aiedu.platform.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * WebClient配置类，为AI服务调用提供带连接池和超时控制的客户端
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Value("${ai.client.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${ai.client.pending-acquire-max-count:200}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${ai.client.pending-acquire-timeout-ms:10000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${ai.client.max-idle-time-ms:30000}")
+    private long maxIdleTimeMs;
+
+    @Value("${ai.client.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${ai.client.read-timeout-ms:120000}")
+    private long readTimeoutMs;
+
+    @Value("${ai.client.max-in-memory-size:4194304}")
+    private int maxInMemorySize;
+
+    @Value("${rag.embedding.timeout-ms:10000}")
+    private long embeddingTimeoutMs;
+
+    @Value("${rag.embedding.max-connections:20}")
+    private int embeddingMaxConnections;
+
+    /**
+     * AI服务连接池，限制最大连接数和等待获取连接的请求数
+     * @return 连接池
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider aiConnectionProvider() {
+        return ConnectionProvider.builder("ai-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .evictInBackground(Duration.ofMillis(maxIdleTimeMs))
+                .build();
+    }
+
+    /**
+     * 调用AI服务使用的WebClient
+     * 读超时为两次网络读操作之间的最大间隔，同样适用于流式响应
+     * @param builder Spring Boot提供的WebClient构建器
+     * @param aiConnectionProvider AI服务连接池
+     * @return WebClient
+     */
+    @Bean
+    public WebClient aiWebClient(WebClient.Builder builder,
+                                 @Qualifier("aiConnectionProvider") ConnectionProvider aiConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(aiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                .build();
+    }
+
+    /**
+     * 向量化服务连接池，与AI服务分开，避免检索请求占用对话的连接
+     * @return 连接池
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider embeddingConnectionProvider() {
+        return ConnectionProvider.builder("embedding")
+                .maxConnections(embeddingMaxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .evictInBackground(Duration.ofMillis(maxIdleTimeMs))
+                .build();
+    }
+
+    /**
+     * 调用向量化服务使用的WebClient
+     * @param builder Spring Boot提供的WebClient构建器
+     * @param embeddingConnectionProvider 向量化服务连接池
+     * @return WebClient
+     */
+    @Bean
+    public WebClient embeddingWebClient(WebClient.Builder builder,
+                                        @Qualifier("embeddingConnectionProvider") ConnectionProvider embeddingConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(embeddingConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(embeddingTimeoutMs));
+
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                .build();
+    }
+}
@@ -4,26 +4,36 @@ import com.aiedu.platform.model.Conversation;
 import com.aiedu.platform.model.Message;
 import com.aiedu.platform.model.User;
 import com.aiedu.platform.payload.request.ChatRequest;
+import com.aiedu.platform.payload.response.ChatMessageResponse;
 import com.aiedu.platform.payload.response.ChatResponse;
 import com.aiedu.platform.payload.response.ConversationResponse;
 import com.aiedu.platform.payload.response.MessageResponse;
 import com.aiedu.platform.repository.ConversationRepository;
 import com.aiedu.platform.repository.MessageRepository;
-import com.aiedu.platform.repository.UserRepository;
-import com.aiedu.platform.security.services.UserDetailsImpl;
-import com.aiedu.platform.service.AIService;
+import com.aiedu.platform.security.CurrentUser;
+import com.aiedu.platform.service.ChatMessageService;
+import com.aiedu.platform.service.ConversationHistoryService;
+import com.aiedu.platform.service.SemanticAnswerCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import javax.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 对话控制器，处理学生与多智能体系统的交互
@@ -32,6 +42,10 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
+    private static final int DEFAULT_CONVERSATION_PAGE_SIZE = 20;
+
+    private static final int DEFAULT_MESSAGE_PAGE_SIZE = 50;
+
     @Autowired
     private ConversationRepository conversationRepository;
 
@@ -39,56 +53,74 @@ public class ChatController {
     private MessageRepository messageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ConversationHistoryService historyService;
 
     @Autowired
-    private AIService aiService;
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Value("${ai.service.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
 
     /**
-     * 获取当前用户的所有对话
+     * 分页获取当前用户的对话，按更新时间倒序
+     * 下一页的游标通过响应头X-Next-Cursor返回，没有更多数据时不返回该响应头；
+     * cursor和limit都未指定时与旧接口一致，返回全部对话
+     * @param user 当前用户
+     * @param cursor 分页游标，为空表示第一页
+     * @param limit 每页数量
      * @return 对话列表响应
      */
     @GetMapping("/conversations")
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> getConversations() {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
-        // 获取用户的所有对话
-        List<Conversation> conversations = conversationRepository.findByUserOrderByUpdatedAtDesc(user);
-        
-        // 转换为响应对象
-        List<ConversationResponse> conversationResponses = conversations.stream()
-                .map(conversation -> new ConversationResponse(
-                        conversation.getId(),
-                        conversation.getTitle(),
-                        conversation.getCreatedAt(),
-                        conversation.getUpdatedAt()
-                ))
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(conversationResponses);
+    public ResponseEntity<?> getConversations(@CurrentUser User user, @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
+        if ((cursor == null || cursor.isEmpty()) && limit == null) {
+            return ResponseEntity.ok(conversationRepository.findFirstPageByUserId(user.getId(), Pageable.unpaged()));
+        }
+
+        // 多取一条用于判断是否还有下一页
+        int pageSize = PageCursors.clampPageSize(limit == null ? DEFAULT_CONVERSATION_PAGE_SIZE : limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<ConversationResponse> conversationResponses;
+        if (cursor == null || cursor.isEmpty()) {
+            conversationResponses = conversationRepository.findFirstPageByUserId(user.getId(), page);
+        } else {
+            PageCursors.TimeCursor after = PageCursors.decodeTimeCursor(cursor);
+            if (after == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("无效的分页游标"));
+            }
+            conversationResponses = conversationRepository.findPageByUserIdAfter(
+                    user.getId(), after.time, after.id, page);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (conversationResponses.size() > pageSize) {
+            conversationResponses = conversationResponses.subList(0, pageSize);
+            ConversationResponse last = conversationResponses.get(pageSize - 1);
+            response.header(PageCursors.NEXT_CURSOR_HEADER,
+                    PageCursors.encodeCursor(last.getUpdatedAt().toString(), last.getId()));
+        }
+
+        return response.body(conversationResponses);
     }
 
     /**
      * 创建新对话
+     * @param user 当前用户
      * @param title 对话标题
      * @return 对话响应
      */
     @PostMapping("/conversations")
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> createConversation(@RequestParam String title) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> createConversation(@CurrentUser User user, @RequestParam String title) {
         // 创建新对话
         Conversation conversation = new Conversation();
         conversation.setTitle(title);
         conversation.setUser(user);
+        conversation.setMessageCount(0);
         conversation.setCreatedAt(LocalDateTime.now());
         conversation.setUpdatedAt(LocalDateTime.now());
         
@@ -106,18 +138,20 @@ public class ChatController {
     }
 
     /**
-     * 获取对话的所有消息
+     * 分页获取对话的消息，从最新的消息开始向前翻页，每页内按时间升序排列
+     * 更早一页的游标通过响应头X-Next-Cursor返回，没有更多数据时不返回该响应头；
+     * cursor和limit都未指定时与旧接口一致，返回全部消息
+     * @param user 当前用户
      * @param conversationId 对话ID
+     * @param cursor 分页游标，为空表示最新一页
+     * @param limit 每页数量
      * @return 消息列表
      */
     @GetMapping("/conversations/{conversationId}/messages")
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> getMessages(@PathVariable Long conversationId) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> getMessages(@CurrentUser User user, @PathVariable Long conversationId,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit) {
         // 获取对话
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("对话不存在"));
@@ -127,26 +161,50 @@ public class ChatController {
             return ResponseEntity.badRequest().body(new MessageResponse("无权访问此对话"));
         }
 
-        // 获取对话的所有消息
-        List<Message> messages = messageRepository.findByConversationOrderByCreatedAtAsc(conversation);
+        if ((cursor == null || cursor.isEmpty()) && limit == null) {
+            List<ChatMessageResponse> messages = new ArrayList<>(
+                    messageRepository.findLatestPage(conversationId, Pageable.unpaged()));
+            Collections.reverse(messages);
+            return ResponseEntity.ok(messages);
+        }
+
+        // 多取一条用于判断是否还有更早的消息
+        int pageSize = PageCursors.clampPageSize(limit == null ? DEFAULT_MESSAGE_PAGE_SIZE : limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<ChatMessageResponse> messages;
+        if (cursor == null || cursor.isEmpty()) {
+            messages = messageRepository.findLatestPage(conversationId, page);
+        } else {
+            PageCursors.OrderCursor before = PageCursors.decodeOrderCursor(cursor);
+            if (before == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("无效的分页游标"));
+            }
+            messages = messageRepository.findPageBefore(conversationId, before.order, before.id, page);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        messages = new ArrayList<>(messages);
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            ChatMessageResponse oldest = messages.get(pageSize - 1);
+            response.header(PageCursors.NEXT_CURSOR_HEADER,
+                    PageCursors.encodeCursor(String.valueOf(oldest.getMessageOrder()), oldest.getId()));
+        }
+        Collections.reverse(messages);
 
-        return ResponseEntity.ok(messages);
+        return response.body(messages);
     }
 
     /**
      * 发送消息并获取AI回复
+     * @param user 当前用户
      * @param conversationId 对话ID
      * @param chatRequest 聊天请求
      * @return 聊天响应
      */
     @PostMapping("/conversations/{conversationId}/messages")
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> sendMessage(@PathVariable Long conversationId, @Valid @RequestBody ChatRequest chatRequest) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> sendMessage(@CurrentUser User user, @PathVariable Long conversationId, @Valid @RequestBody ChatRequest chatRequest) {
         // 获取对话
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("对话不存在"));
@@ -156,42 +214,22 @@ public class ChatController {
             return ResponseEntity.badRequest().body(new MessageResponse("无权访问此对话"));
         }
 
-        // 保存用户消息
+        // 创建用户消息，与AI回复在本轮结束时一起保存
         Message userMessage = new Message();
         userMessage.setConversation(conversation);
         userMessage.setContent(chatRequest.getContent());
         userMessage.setSender("user");
         userMessage.setCreatedAt(LocalDateTime.now());
-        messageRepository.save(userMessage);
-
-        // 更新对话时间
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
 
-        // 获取对话历史
-        List<Message> messageHistory = messageRepository.findByConversationOrderByCreatedAtAsc(conversation);
-        List<ChatResponse.MessageDto> history = messageHistory.stream()
-                .map(message -> new ChatResponse.MessageDto(
-                        message.getSender(),
-                        message.getContent(),
-                        message.getCreatedAt()
-                ))
-                .collect(Collectors.toList());
+        // 获取最近的对话历史窗口
+        List<ChatResponse.MessageDto> history = historyService.buildHistory(conversation, userMessage);
 
-        // 调用AI服务获取回复
-        String aiReply = aiService.getMultiAgentReply(history, chatRequest.getContent());
-
-        // 保存AI回复
-        Message aiMessage = new Message();
-        aiMessage.setConversation(conversation);
-        aiMessage.setContent(aiReply);
-        aiMessage.setSender("ai");
-        aiMessage.setCreatedAt(LocalDateTime.now());
-        messageRepository.save(aiMessage);
+        // 调用AI服务获取回复，相似问题优先使用语义缓存中的回答
+        String aiReply = semanticAnswerCache.getReply(history, chatRequest.getContent(), chatRequest.isUseRAG());
 
-        // 更新对话时间
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
+        // 在同一事务中批量保存用户消息和AI回复
+        Message aiMessage = newAiMessage(conversation, aiReply);
+        chatMessageService.saveTurn(conversation, userMessage, aiMessage);
 
         // 返回AI回复
         ChatResponse response = new ChatResponse(
@@ -204,19 +242,96 @@ public class ChatController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 发送消息并以流式方式获取AI回复
+     * AI回复片段以"message"事件推送，流结束后保存完整回复并推送"done"事件。
+     * 客户端断开、超时或推送失败后不再推送事件，但仍接收完上游回复并保存本轮，与非流式接口一致
+     * @param user 当前用户
+     * @param conversationId 对话ID
+     * @param chatRequest 聊天请求
+     * @return SSE发射器
+     */
+    @PostMapping(value = "/conversations/{conversationId}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<SseEmitter> streamMessage(@CurrentUser User user, @PathVariable Long conversationId,
+                                                    @Valid @RequestBody ChatRequest chatRequest) {
+        // 获取对话
+        Conversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new RuntimeException("对话不存在"));
+
+        // 验证对话所有者，SSE响应只能携带事件流，因此返回不带响应体的400
+        if (!conversation.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        // 创建用户消息，与AI回复在本轮结束时一起保存
+        Message userMessage = new Message();
+        userMessage.setConversation(conversation);
+        userMessage.setContent(chatRequest.getContent());
+        userMessage.setSender("user");
+        userMessage.setCreatedAt(LocalDateTime.now());
+
+        // 获取最近的对话历史窗口
+        List<ChatResponse.MessageDto> history = historyService.buildHistory(conversation, userMessage);
+
+        // AI回复失败时仍然保存用户消息，只处理上游的失败，保存本轮时的失败不会再次保存
+        Flux<String> upstream = semanticAnswerCache.streamReply(history, chatRequest.getContent(), chatRequest.isUseRAG())
+                .onErrorResume(error -> Mono.fromRunnable(() -> chatMessageService.saveTurn(conversation, userMessage, null))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.<String>error(error)));
+
+        // 客户端断开后不再推送，上游不取消，回复组装完成后照常保存
+        AtomicBoolean clientGone = new AtomicBoolean();
+        emitter.onTimeout(() -> {
+            clientGone.set(true);
+            emitter.complete();
+        });
+        emitter.onError(e -> clientGone.set(true));
+
+        // 转发AI回复片段，流结束后在弹性线程池中保存完整回复，避免阻塞网络线程
+        StringBuilder reply = new StringBuilder();
+        upstream
+                .doOnNext(chunk -> {
+                    reply.append(chunk);
+                    sendEvent(emitter, clientGone, "message", chunk);
+                })
+                .then(Mono.fromCallable(() -> {
+                    Message aiMessage = newAiMessage(conversation, reply.toString());
+                    chatMessageService.saveTurn(conversation, userMessage, aiMessage);
+                    return aiMessage;
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .subscribe(
+                        aiMessage -> {
+                            if (sendEvent(emitter, clientGone, "done", new ChatResponse(
+                                    aiMessage.getId(),
+                                    aiMessage.getContent(),
+                                    aiMessage.getSender(),
+                                    aiMessage.getCreatedAt()
+                            ))) {
+                                emitter.complete();
+                            }
+                        },
+                        error -> {
+                            if (sendEvent(emitter, clientGone, "error",
+                                    new MessageResponse("AI服务流式回复失败: " + error.getMessage()))) {
+                                emitter.complete();
+                            }
+                        });
+
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * 删除对话
+     * @param user 当前用户
      * @param conversationId 对话ID
      * @return 消息响应
      */
     @DeleteMapping("/conversations/{conversationId}")
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> deleteConversation(@PathVariable Long conversationId) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> deleteConversation(@CurrentUser User user, @PathVariable Long conversationId) {
         // 获取对话
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("对话不存在"));
@@ -234,4 +349,56 @@ public class ChatController {
 
         return ResponseEntity.ok(new MessageResponse("对话已删除"));
     }
-}
\ No newline at end of file
+
+    /**
+     * 删除对话语义缓存
+     * @param question 问题，指定时只删除与该问题相似的缓存（例如发现回答有误时），为空时清空全部缓存
+     * @return 消息响应
+     */
+    @DeleteMapping("/answer-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> clearAnswerCache(@RequestParam(required = false) String question) {
+        int deleted = question == null || question.trim().isEmpty()
+                ? semanticAnswerCache.invalidateAll()
+                : semanticAnswerCache.invalidateSimilar(question);
+        return ResponseEntity.ok(new MessageResponse("已删除对话语义缓存" + deleted + "条"));
+    }
+
+    /**
+     * 创建AI回复消息
+     * @param conversation 对话
+     * @param content 回复内容
+     * @return AI回复消息
+     */
+    private Message newAiMessage(Conversation conversation, String content) {
+        Message aiMessage = new Message();
+        aiMessage.setConversation(conversation);
+        aiMessage.setContent(content);
+        aiMessage.setSender("ai");
+        aiMessage.setCreatedAt(LocalDateTime.now());
+        return aiMessage;
+    }
+
+    /**
+     * 向客户端推送SSE事件，客户端已断开时跳过；推送失败时标记客户端已断开并结束发射器
+     * @param emitter SSE发射器
+     * @param clientGone 客户端是否已断开
+     * @param name 事件名称
+     * @param data 事件数据
+     * @return 是否推送成功
+     */
+    private boolean sendEvent(SseEmitter emitter, AtomicBoolean clientGone, String name, Object data) {
+        if (clientGone.get()) {
+            return false;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开连接或发射器已结束
+            clientGone.set(true);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
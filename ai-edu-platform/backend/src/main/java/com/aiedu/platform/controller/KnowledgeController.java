@@ -0,0 +1,163 @@
+package com.aiedu.platform.controller;
+
+import com.aiedu.platform.model.User;
+import com.aiedu.platform.payload.request.VectorIndexRebuildRequest;
+import com.aiedu.platform.payload.request.VectorSearchSettingsRequest;
+import com.aiedu.platform.payload.response.KnowledgeChunk;
+import com.aiedu.platform.payload.response.KnowledgeUploadResponse;
+import com.aiedu.platform.payload.response.MessageResponse;
+import com.aiedu.platform.payload.response.VectorIndexStatusResponse;
+import com.aiedu.platform.security.CurrentUser;
+import com.aiedu.platform.service.KnowledgeIngestionService;
+import com.aiedu.platform.service.KnowledgeRetrievalService;
+import com.aiedu.platform.service.VectorIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 知识库控制器，处理知识库文件的上传和导入，以及向量索引的管理
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/knowledge")
+public class KnowledgeController {
+    @Autowired
+    private KnowledgeIngestionService knowledgeIngestionService;
+
+    @Autowired
+    private KnowledgeRetrievalService knowledgeRetrievalService;
+
+    @Autowired
+    private VectorIndexService vectorIndexService;
+
+    /**
+     * 上传知识库文件（PDF、TXT或Markdown），分块、向量化后写入知识库
+     * @param user 当前用户
+     * @param file 上传的文件
+     * @param grade 适用年级，写入文本块元数据用于检索过滤，可为空
+     * @param subject 学科，写入文本块元数据用于检索过滤，可为空
+     * @return 导入结果响应
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> upload(@CurrentUser User user, @RequestParam("file") MultipartFile file,
+                                    @RequestParam(required = false) String grade,
+                                    @RequestParam(required = false) String subject) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("文件不能为空"));
+        }
+        if (!KnowledgeIngestionService.isSupported(file.getOriginalFilename())) {
+            return ResponseEntity.badRequest().body(new MessageResponse("不支持的文件格式"));
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("grade", grade);
+            attributes.put("subject", subject);
+            KnowledgeUploadResponse response = knowledgeIngestionService.ingest(
+                    file.getOriginalFilename(), in, user.getId(), attributes);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IOException e) {
+            throw new RuntimeException("读取上传文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 检索知识库，可按年级、学科和来源文件过滤
+     * @param query 查询文本
+     * @param topK 最多返回的数量
+     * @param grade 年级，可为空
+     * @param subject 学科，可为空
+     * @param source 来源文件名，可为空
+     * @return 文本块列表
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> search(@RequestParam String query,
+                                    @RequestParam(defaultValue = "5") int topK,
+                                    @RequestParam(required = false) String grade,
+                                    @RequestParam(required = false) String subject,
+                                    @RequestParam(required = false) String source) {
+        if (!knowledgeRetrievalService.isEnabled()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("知识库检索未启用"));
+        }
+        if (topK <= 0 || topK > 50) {
+            return ResponseEntity.badRequest().body(new MessageResponse("topK必须在1到50之间"));
+        }
+
+        Map<String, String> filter = new HashMap<>();
+        filter.put("grade", grade);
+        filter.put("subject", subject);
+        filter.put("source", source);
+        List<KnowledgeChunk> chunks = knowledgeRetrievalService.retrieve(query, topK, filter);
+        return ResponseEntity.ok(chunks);
+    }
+
+    /**
+     * 获取向量索引状态（索引定义、大小、是否有效以及当前查询参数）
+     * @return 索引状态响应
+     */
+    @GetMapping("/index")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getIndexStatus() {
+        return ResponseEntity.ok(vectorIndexService.getStatus());
+    }
+
+    /**
+     * 重建向量索引，可切换索引类型并按当前文档数调整索引参数
+     * @param rebuildRequest 索引参数
+     * @return 重建后的索引状态响应
+     */
+    @PostMapping("/index/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildIndex(@Valid @RequestBody VectorIndexRebuildRequest rebuildRequest) {
+        try {
+            return ResponseEntity.ok(vectorIndexService.rebuild(rebuildRequest));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } finally {
+            knowledgeRetrievalService.invalidateAll();
+        }
+    }
+
+    /**
+     * 调整向量检索的查询参数
+     * @param settingsRequest 查询参数
+     * @return 调整后的索引状态响应
+     */
+    @PutMapping("/index/search-settings")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateSearchSettings(@Valid @RequestBody VectorSearchSettingsRequest settingsRequest) {
+        VectorIndexStatusResponse response = vectorIndexService.updateSearchSettings(settingsRequest);
+        knowledgeRetrievalService.invalidateAll();
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 以抽样文档评估当前索引的召回率和延迟（与精确检索对比）
+     * @param sampleSize 抽样数
+     * @param k 每次检索返回的数量
+     * @return 评估报告响应
+     */
+    @GetMapping("/index/evaluate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> evaluateIndex(@RequestParam(defaultValue = "50") int sampleSize,
+                                           @RequestParam(defaultValue = "10") int k) {
+        if (sampleSize <= 0 || k <= 0 || k > 100) {
+            return ResponseEntity.badRequest().body(new MessageResponse("抽样数必须大于0，k必须在1到100之间"));
+        }
+        return ResponseEntity.ok(vectorIndexService.evaluate(sampleSize, k));
+    }
+}
@@ -3,18 +3,26 @@ package com.aiedu.platform.controller;
 import com.aiedu.platform.model.LessonPlan;
 import com.aiedu.platform.model.User;
 import com.aiedu.platform.payload.request.LessonPlanRequest;
+import com.aiedu.platform.payload.request.LessonPlanSearchRequest;
 import com.aiedu.platform.payload.response.LessonPlanResponse;
+import com.aiedu.platform.payload.response.LessonPlanSearchResponse;
+import com.aiedu.platform.payload.response.LessonPlanSummaryResponse;
 import com.aiedu.platform.payload.response.MessageResponse;
 import com.aiedu.platform.repository.LessonPlanRepository;
-import com.aiedu.platform.repository.UserRepository;
-import com.aiedu.platform.security.services.UserDetailsImpl;
-import com.aiedu.platform.service.AIService;
+import com.aiedu.platform.security.CurrentUser;
+import com.aiedu.platform.service.LessonPlanGenerationCache;
+import com.aiedu.platform.service.LessonPlanJob;
+import com.aiedu.platform.service.LessonPlanJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
@@ -28,67 +36,102 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/lesson-plans")
 public class LessonPlanController {
+    private static final int JOB_RETRY_AFTER_SECONDS = 5;
+
     @Autowired
     private LessonPlanRepository lessonPlanRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private LessonPlanGenerationCache lessonPlanGenerationCache;
 
     @Autowired
-    private AIService aiService;
+    private LessonPlanJobService lessonPlanJobService;
 
     /**
      * 获取当前用户的所有教案
+     * @param user 当前用户
      * @return 教案列表响应
      */
     @GetMapping
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> getLessonPlans() {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> getLessonPlans(@CurrentUser User user) {
         // 获取用户的所有教案
         List<LessonPlan> lessonPlans = lessonPlanRepository.findByUserOrderByCreatedAtDesc(user);
         
         // 转换为响应对象
         List<LessonPlanResponse> lessonPlanResponses = lessonPlans.stream()
-                .map(lessonPlan -> new LessonPlanResponse(
-                        lessonPlan.getId(),
-                        lessonPlan.getTitle(),
-                        lessonPlan.getGrade(),
-                        lessonPlan.getModule(),
-                        lessonPlan.getKnowledgePoint(),
-                        lessonPlan.getDuration(),
-                        lessonPlan.getObjectivesList(),
-                        lessonPlan.getKeyPointsList(),
-                        lessonPlan.getDifficultPointsList(),
-                        lessonPlan.getResourcesList(),
-                        lessonPlan.getTeachingProcessList(),
-                        lessonPlan.getEvaluation(),
-                        lessonPlan.getExtension(),
-                        lessonPlan.getCreatedAt(),
-                        lessonPlan.getUpdatedAt()
-                ))
+                .map(LessonPlanResponse::fromEntity)
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(lessonPlanResponses);
     }
 
+    /**
+     * 分页获取当前用户的教案摘要，只返回列表展示需要的字段，完整内容通过GET /{id}获取
+     * 下一页的游标通过响应头X-Next-Cursor返回，没有更多数据时不返回该响应头
+     * @param user 当前用户
+     * @param cursor 上一页返回的游标，为空时获取第一页
+     * @param limit 每页数量
+     * @return 教案摘要列表
+     */
+    @GetMapping("/summaries")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> getLessonPlanSummaries(@CurrentUser User user, @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int limit) {
+        // 多取一条用于判断是否还有下一页
+        int pageSize = PageCursors.clampPageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<LessonPlanSummaryResponse> summaries;
+        if (cursor == null || cursor.isEmpty()) {
+            summaries = lessonPlanRepository.findSummaryFirstPageByUserId(user.getId(), page);
+        } else {
+            PageCursors.TimeCursor after = PageCursors.decodeTimeCursor(cursor);
+            if (after == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("无效的分页游标"));
+            }
+            summaries = lessonPlanRepository.findSummaryPageByUserIdAfter(
+                    user.getId(), after.time, after.id, page);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            LessonPlanSummaryResponse last = summaries.get(pageSize - 1);
+            response.header(PageCursors.NEXT_CURSOR_HEADER,
+                    PageCursors.encodeCursor(last.getCreatedAt().toString(), last.getId()));
+        }
+
+        return response.body(summaries);
+    }
+
+    /**
+     * 搜索当前用户的教案，支持关键词全文检索以及年级、模块、课时过滤，返回分页的教案摘要和分面计数
+     * @param user 当前用户
+     * @param searchRequest 搜索条件
+     * @param page 页码，从0开始
+     * @param size 每页数量
+     * @return 搜索结果
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> searchLessonPlans(@CurrentUser User user, LessonPlanSearchRequest searchRequest,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "20") int size) {
+        LessonPlanSearchResponse response = lessonPlanRepository.search(
+                user.getId(), searchRequest, Math.max(0, page), PageCursors.clampPageSize(size));
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 根据ID获取教案
+     * @param user 当前用户
      * @param id 教案ID
      * @return 教案响应
      */
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> getLessonPlanById(@PathVariable Long id) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> getLessonPlanById(@CurrentUser User user, @PathVariable Long id) {
         // 获取教案
         LessonPlan lessonPlan = lessonPlanRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("教案不存在"));
@@ -99,50 +142,22 @@ public class LessonPlanController {
         }
 
         // 转换为响应对象
-        LessonPlanResponse response = new LessonPlanResponse(
-                lessonPlan.getId(),
-                lessonPlan.getTitle(),
-                lessonPlan.getGrade(),
-                lessonPlan.getModule(),
-                lessonPlan.getKnowledgePoint(),
-                lessonPlan.getDuration(),
-                lessonPlan.getObjectivesList(),
-                lessonPlan.getKeyPointsList(),
-                lessonPlan.getDifficultPointsList(),
-                lessonPlan.getResourcesList(),
-                lessonPlan.getTeachingProcessList(),
-                lessonPlan.getEvaluation(),
-                lessonPlan.getExtension(),
-                lessonPlan.getCreatedAt(),
-                lessonPlan.getUpdatedAt()
-        );
+        LessonPlanResponse response = LessonPlanResponse.fromEntity(lessonPlan);
 
         return ResponseEntity.ok(response);
     }
 
     /**
      * 生成教案
+     * @param user 当前用户
      * @param lessonPlanRequest 教案请求
      * @return 教案响应
      */
     @PostMapping("/generate")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> generateLessonPlan(@Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
-        // 调用AI服务生成教案
-        LessonPlan generatedPlan = aiService.generateLessonPlan(
-                lessonPlanRequest.getGrade(),
-                lessonPlanRequest.getModule(),
-                lessonPlanRequest.getKnowledgePoint(),
-                lessonPlanRequest.getDuration(),
-                lessonPlanRequest.getPreferences(),
-                lessonPlanRequest.getCustomRequirements(),
-                lessonPlanRequest.isUseRAG()
-        );
+    public ResponseEntity<?> generateLessonPlan(@CurrentUser User user, @Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
+        // 调用AI服务生成教案，相同参数的请求复用缓存结果
+        LessonPlan generatedPlan = lessonPlanGenerationCache.generate(lessonPlanRequest);
 
         // 设置教案所有者和时间
         generatedPlan.setUser(user);
@@ -150,40 +165,72 @@ public class LessonPlanController {
         generatedPlan.setUpdatedAt(LocalDateTime.now());
 
         // 转换为响应对象
-        LessonPlanResponse response = new LessonPlanResponse(
-                null, // 未保存，所以ID为空
-                generatedPlan.getTitle(),
-                generatedPlan.getGrade(),
-                generatedPlan.getModule(),
-                generatedPlan.getKnowledgePoint(),
-                generatedPlan.getDuration(),
-                generatedPlan.getObjectivesList(),
-                generatedPlan.getKeyPointsList(),
-                generatedPlan.getDifficultPointsList(),
-                generatedPlan.getResourcesList(),
-                generatedPlan.getTeachingProcessList(),
-                generatedPlan.getEvaluation(),
-                generatedPlan.getExtension(),
-                generatedPlan.getCreatedAt(),
-                generatedPlan.getUpdatedAt()
-        );
+        LessonPlanResponse response = LessonPlanResponse.fromEntity(generatedPlan); // 未保存，所以ID为空
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 提交教案生成任务，立即返回任务ID，生成在后台线程池中执行
+     * @param user 当前用户
+     * @param lessonPlanRequest 教案请求
+     * @return 任务响应，任务队列已满时返回503
+     */
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> submitLessonPlanJob(@CurrentUser User user, @Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
+        try {
+            LessonPlanJob job = lessonPlanJobService.submit(user, lessonPlanRequest);
+            return ResponseEntity.accepted().body(LessonPlanJobService.toResponse(job));
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(JOB_RETRY_AFTER_SECONDS))
+                    .body(new MessageResponse("教案生成任务繁忙，请稍后再试"));
+        }
+    }
+
+    /**
+     * 查询教案生成任务状态
+     * @param user 当前用户
+     * @param jobId 任务ID
+     * @return 任务响应
+     */
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> getLessonPlanJob(@CurrentUser User user, @PathVariable String jobId) {
+        LessonPlanJob job = lessonPlanJobService.findJob(jobId).orElse(null);
+        if (job == null || !job.getUserId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("任务不存在或已过期"));
+        }
+
+        return ResponseEntity.ok(LessonPlanJobService.toResponse(job));
+    }
+
+    /**
+     * 通过SSE订阅教案生成任务的完成通知
+     * @param user 当前用户
+     * @param jobId 任务ID
+     * @return SSE发射器
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public SseEmitter subscribeLessonPlanJob(@CurrentUser User user, @PathVariable String jobId) {
+        LessonPlanJob job = lessonPlanJobService.findJob(jobId)
+                .filter(j -> j.getUserId().equals(user.getId()))
+                .orElseThrow(() -> new RuntimeException("任务不存在或已过期"));
+
+        return lessonPlanJobService.subscribe(job);
+    }
+
     /**
      * 保存教案
+     * @param user 当前用户
      * @param lessonPlanRequest 教案请求
      * @return 教案响应
      */
     @PostMapping
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> saveLessonPlan(@Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> saveLessonPlan(@CurrentUser User user, @Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
         // 创建新教案
         LessonPlan lessonPlan = new LessonPlan();
         lessonPlan.setTitle(lessonPlanRequest.getTitle());
@@ -205,41 +252,21 @@ public class LessonPlanController {
         lessonPlanRepository.save(lessonPlan);
 
         // 转换为响应对象
-        LessonPlanResponse response = new LessonPlanResponse(
-                lessonPlan.getId(),
-                lessonPlan.getTitle(),
-                lessonPlan.getGrade(),
-                lessonPlan.getModule(),
-                lessonPlan.getKnowledgePoint(),
-                lessonPlan.getDuration(),
-                lessonPlan.getObjectivesList(),
-                lessonPlan.getKeyPointsList(),
-                lessonPlan.getDifficultPointsList(),
-                lessonPlan.getResourcesList(),
-                lessonPlan.getTeachingProcessList(),
-                lessonPlan.getEvaluation(),
-                lessonPlan.getExtension(),
-                lessonPlan.getCreatedAt(),
-                lessonPlan.getUpdatedAt()
-        );
+        LessonPlanResponse response = LessonPlanResponse.fromEntity(lessonPlan);
 
         return ResponseEntity.ok(response);
     }
 
     /**
      * 更新教案
+     * @param user 当前用户
      * @param id 教案ID
      * @param lessonPlanRequest 教案请求
      * @return 教案响应
      */
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> updateLessonPlan(@PathVariable Long id, @Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> updateLessonPlan(@CurrentUser User user, @PathVariable Long id, @Valid @RequestBody LessonPlanRequest lessonPlanRequest) {
         // 获取教案
         LessonPlan lessonPlan = lessonPlanRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("教案不存在"));
@@ -267,40 +294,20 @@ public class LessonPlanController {
         lessonPlanRepository.save(lessonPlan);
 
         // 转换为响应对象
-        LessonPlanResponse response = new LessonPlanResponse(
-                lessonPlan.getId(),
-                lessonPlan.getTitle(),
-                lessonPlan.getGrade(),
-                lessonPlan.getModule(),
-                lessonPlan.getKnowledgePoint(),
-                lessonPlan.getDuration(),
-                lessonPlan.getObjectivesList(),
-                lessonPlan.getKeyPointsList(),
-                lessonPlan.getDifficultPointsList(),
-                lessonPlan.getResourcesList(),
-                lessonPlan.getTeachingProcessList(),
-                lessonPlan.getEvaluation(),
-                lessonPlan.getExtension(),
-                lessonPlan.getCreatedAt(),
-                lessonPlan.getUpdatedAt()
-        );
+        LessonPlanResponse response = LessonPlanResponse.fromEntity(lessonPlan);
 
         return ResponseEntity.ok(response);
     }
 
     /**
      * 删除教案
+     * @param user 当前用户
      * @param id 教案ID
      * @return 消息响应
      */
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> deleteLessonPlan(@PathVariable Long id) {
-        // 获取当前用户
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("用户不存在"));
-
+    public ResponseEntity<?> deleteLessonPlan(@CurrentUser User user, @PathVariable Long id) {
         // 获取教案
         LessonPlan lessonPlan = lessonPlanRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("教案不存在"));
@@ -0,0 +1,116 @@
+package com.aiedu.platform.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 键集分页游标工具，游标由排序键和ID编码而成，对客户端不透明
+ */
+final class PageCursors {
+    /**
+     * 下一页游标的响应头
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private PageCursors() {
+    }
+
+    /**
+     * 限制每页数量在合理范围内
+     * @param limit 请求的每页数量
+     * @return 实际的每页数量
+     */
+    static int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 将排序键和ID编码为不透明的分页游标
+     * @param sortKey 排序键
+     * @param id ID
+     * @return 分页游标
+     */
+    static String encodeCursor(String sortKey, Long id) {
+        String raw = sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码以时间为排序键的分页游标
+     * @param cursor 分页游标
+     * @return 游标，无效或排序键不是时间时返回null
+     */
+    static TimeCursor decodeTimeCursor(String cursor) {
+        String[] parts = decodeCursor(cursor);
+        if (parts == null) {
+            return null;
+        }
+        try {
+            return new TimeCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解码以消息序号为排序键的分页游标
+     * @param cursor 分页游标
+     * @return 游标，无效或排序键不是整数时返回null
+     */
+    static OrderCursor decodeOrderCursor(String cursor) {
+        String[] parts = decodeCursor(cursor);
+        if (parts == null) {
+            return null;
+        }
+        try {
+            return new OrderCursor(Integer.valueOf(parts[0]), Long.valueOf(parts[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解码分页游标
+     * @param cursor 分页游标
+     * @return [排序键, ID]，游标无效时返回null
+     */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            return parts.length == 2 ? parts : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 以时间和ID为排序键的游标
+     */
+    static final class TimeCursor {
+        final LocalDateTime time;
+        final Long id;
+
+        TimeCursor(LocalDateTime time, Long id) {
+            this.time = time;
+            this.id = id;
+        }
+    }
+
+    /**
+     * 以消息序号和ID为排序键的游标
+     */
+    static final class OrderCursor {
+        final Integer order;
+        final Long id;
+
+        OrderCursor(Integer order, Long id) {
+            this.order = order;
+            this.id = id;
+        }
+    }
+}
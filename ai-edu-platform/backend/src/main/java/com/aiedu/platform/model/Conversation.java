@@ -16,7 +16,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations",
+       indexes = {
+           @Index(name = "idx_conversations_user_updated", columnList = "user_id, updated_at, id")
+       })
 public class Conversation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,6 +44,15 @@ public class Conversation {
     @Column(name = "agent_roles_involved")
     private String agentRolesInvolved;
     
+    @Column(name = "message_count")
+    private Integer messageCount;  // 已分配的消息序号，为空表示旧数据尚未回填message_order
+    
+    @Column(name = "history_summary", columnDefinition = "TEXT")
+    private String historySummary;  // 滚出历史窗口的早期消息摘要
+    
+    @Column(name = "summarized_up_to")
+    private Integer summarizedUpTo;  // 已并入摘要的最大消息序号
+    
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Message> messages = new ArrayList<>();
     
@@ -3,13 +3,17 @@ package com.aiedu.platform.model;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -20,7 +24,10 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "lesson_plans")
+@Table(name = "lesson_plans",
+       indexes = {
+           @Index(name = "idx_lesson_plans_user_created", columnList = "user_id, created_at, id")
+       })
 public class LessonPlan {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -87,53 +94,82 @@ public class LessonPlan {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Logger logger = LoggerFactory.getLogger(LessonPlan.class);
     
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final ObjectReader MAP_LIST_READER =
+            objectMapper.readerFor(new TypeReference<List<Map<String, String>>>() {});
+
+    private static final ObjectReader STRING_LIST_READER =
+            objectMapper.readerFor(new TypeReference<List<String>>() {});
+
+    private static final ObjectReader OBJECT_MAP_LIST_READER =
+            objectMapper.readerFor(new TypeReference<List<Map<String, Object>>>() {});
+
+    /**
+     * 加载或刷新实体后清空已解析的列表，Hibernate直接写字段，不经过setter
+     */
+    @PostLoad
+    private void clearParsedLists() {
+        this.objectivesList = null;
+        this.keyPointsList = null;
+        this.difficultPointsList = null;
+        this.resourcesList = null;
+        this.teachingProcessList = null;
+    }
+
+    /**
+     * 设置教学目标JSON，清空已解析的列表
+     * @param objectives 教学目标JSON
+     */
+    public void setObjectives(String objectives) {
+        this.objectives = objectives;
+        this.objectivesList = null;
+    }
+
     /**
-     * 获取教学目标列表
+     * 获取教学目标列表，首次调用时解析JSON并缓存结果；返回只读视图，修改需通过setter写回JSON
      * @return 教学目标列表
      */
     public List<Map<String, String>> getObjectivesList() {
-        if (objectives == null || objectives.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        try {
-            return objectMapper.readValue(objectives, new TypeReference<List<Map<String, String>>>() {});
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        if (objectivesList == null) {
+            objectivesList = parse(MAP_LIST_READER, objectives);
         }
+        return Collections.unmodifiableList(objectivesList);
     }
     
     /**
-     * 设置教学目标列表
+     * 设置教学目标列表，保存副本以免调用方后续修改与JSON字段不一致
      * @param objectivesList 教学目标列表
      */
     public void setObjectivesList(List<Map<String, String>> objectivesList) {
         try {
             this.objectives = objectMapper.writeValueAsString(objectivesList);
-            this.objectivesList = objectivesList;
+            this.objectivesList = objectivesList != null ? new ArrayList<>(objectivesList) : null;
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            logger.error("教案字段JSON处理失败: {}", e.getMessage());
         }
     }
+
+    /**
+     * 设置教学重点JSON，清空已解析的列表
+     * @param keyPoints 教学重点JSON
+     */
+    public void setKeyPoints(String keyPoints) {
+        this.keyPoints = keyPoints;
+        this.keyPointsList = null;
+    }
     
     /**
-     * 获取教学重点列表
+     * 获取教学重点列表，首次调用时解析JSON并缓存结果
      * @return 教学重点列表
      */
     public List<String> getKeyPointsList() {
-        if (keyPoints == null || keyPoints.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        try {
-            return objectMapper.readValue(keyPoints, new TypeReference<List<String>>() {});
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        if (keyPointsList == null) {
+            keyPointsList = parse(STRING_LIST_READER, keyPoints);
         }
+        return Collections.unmodifiableList(keyPointsList);
     }
     
     /**
@@ -143,27 +179,30 @@ public class LessonPlan {
     public void setKeyPointsList(List<String> keyPointsList) {
         try {
             this.keyPoints = objectMapper.writeValueAsString(keyPointsList);
-            this.keyPointsList = keyPointsList;
+            this.keyPointsList = keyPointsList != null ? new ArrayList<>(keyPointsList) : null;
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            logger.error("教案字段JSON处理失败: {}", e.getMessage());
         }
     }
+
+    /**
+     * 设置教学难点JSON，清空已解析的列表
+     * @param difficultPoints 教学难点JSON
+     */
+    public void setDifficultPoints(String difficultPoints) {
+        this.difficultPoints = difficultPoints;
+        this.difficultPointsList = null;
+    }
     
     /**
-     * 获取教学难点列表
+     * 获取教学难点列表，首次调用时解析JSON并缓存结果
      * @return 教学难点列表
      */
     public List<String> getDifficultPointsList() {
-        if (difficultPoints == null || difficultPoints.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        try {
-            return objectMapper.readValue(difficultPoints, new TypeReference<List<String>>() {});
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        if (difficultPointsList == null) {
+            difficultPointsList = parse(STRING_LIST_READER, difficultPoints);
         }
+        return Collections.unmodifiableList(difficultPointsList);
     }
     
     /**
@@ -173,27 +212,30 @@ public class LessonPlan {
     public void setDifficultPointsList(List<String> difficultPointsList) {
         try {
             this.difficultPoints = objectMapper.writeValueAsString(difficultPointsList);
-            this.difficultPointsList = difficultPointsList;
+            this.difficultPointsList = difficultPointsList != null ? new ArrayList<>(difficultPointsList) : null;
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            logger.error("教案字段JSON处理失败: {}", e.getMessage());
         }
     }
+
+    /**
+     * 设置教学资源JSON，清空已解析的列表
+     * @param resources 教学资源JSON
+     */
+    public void setResources(String resources) {
+        this.resources = resources;
+        this.resourcesList = null;
+    }
     
     /**
-     * 获取教学资源列表
+     * 获取教学资源列表，首次调用时解析JSON并缓存结果
      * @return 教学资源列表
      */
     public List<Map<String, String>> getResourcesList() {
-        if (resources == null || resources.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        try {
-            return objectMapper.readValue(resources, new TypeReference<List<Map<String, String>>>() {});
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        if (resourcesList == null) {
+            resourcesList = parse(MAP_LIST_READER, resources);
         }
+        return Collections.unmodifiableList(resourcesList);
     }
     
     /**
@@ -203,27 +245,30 @@ public class LessonPlan {
     public void setResourcesList(List<Map<String, String>> resourcesList) {
         try {
             this.resources = objectMapper.writeValueAsString(resourcesList);
-            this.resourcesList = resourcesList;
+            this.resourcesList = resourcesList != null ? new ArrayList<>(resourcesList) : null;
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            logger.error("教案字段JSON处理失败: {}", e.getMessage());
         }
     }
+
+    /**
+     * 设置教学过程JSON，清空已解析的列表
+     * @param teachingProcess 教学过程JSON
+     */
+    public void setTeachingProcess(String teachingProcess) {
+        this.teachingProcess = teachingProcess;
+        this.teachingProcessList = null;
+    }
     
     /**
-     * 获取教学过程列表
+     * 获取教学过程列表，首次调用时解析JSON并缓存结果
      * @return 教学过程列表
      */
     public List<Map<String, Object>> getTeachingProcessList() {
-        if (teachingProcess == null || teachingProcess.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        try {
-            return objectMapper.readValue(teachingProcess, new TypeReference<List<Map<String, Object>>>() {});
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        if (teachingProcessList == null) {
+            teachingProcessList = parse(OBJECT_MAP_LIST_READER, teachingProcess);
         }
+        return Collections.unmodifiableList(teachingProcessList);
     }
     
     /**
@@ -233,9 +278,29 @@ public class LessonPlan {
     public void setTeachingProcessList(List<Map<String, Object>> teachingProcessList) {
         try {
             this.teachingProcess = objectMapper.writeValueAsString(teachingProcessList);
-            this.teachingProcessList = teachingProcessList;
+            this.teachingProcessList = teachingProcessList != null ? new ArrayList<>(teachingProcessList) : null;
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            logger.error("教案字段JSON处理失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 解析JSON列表，内容为空或解析失败时返回空列表
+     * @param reader 对应类型的读取器
+     * @param json JSON文本
+     * @return 解析结果
+     */
+    private static <T> List<T> parse(ObjectReader reader, String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        try {
+            List<T> parsed = reader.readValue(json);
+            return parsed != null ? parsed : new ArrayList<>();
+        } catch (JsonProcessingException e) {
+            logger.error("教案字段JSON处理失败: {}", e.getMessage());
+            return new ArrayList<>();
         }
     }
-}
\ No newline at end of file
+}
@@ -3,12 +3,15 @@ package com.aiedu.platform.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -70,4 +73,13 @@ public class User {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
+
+    /**
+     * 通过仓库保存用户时发布变更事件，用于使缓存的认证信息失效
+     * @return 用户变更事件
+     */
+    @DomainEvents
+    Collection<Object> domainEvents() {
+        return Collections.singletonList(new UserChangedEvent(username));
+    }
 }
\ No newline at end of file
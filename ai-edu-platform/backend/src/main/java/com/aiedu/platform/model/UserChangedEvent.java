@@ -0,0 +1,16 @@
+package com.aiedu.platform.model;
+
+/**
+ * 用户变更事件，用户信息（如密码、角色）保存后发布
+ */
+public class UserChangedEvent {
+    private final String username;
+
+    public UserChangedEvent(String username) {
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
@@ -9,6 +9,8 @@ public class ChatRequest {
     @NotBlank
     private String content;
 
+    private boolean useRAG;
+
     public String getContent() {
         return content;
     }
@@ -16,4 +18,12 @@ public class ChatRequest {
     public void setContent(String content) {
         this.content = content;
     }
+
+    public boolean isUseRAG() {
+        return useRAG;
+    }
+
+    public void setUseRAG(boolean useRAG) {
+        this.useRAG = useRAG;
+    }
 }
\ No newline at end of file
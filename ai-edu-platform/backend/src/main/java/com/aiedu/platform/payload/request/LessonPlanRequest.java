@@ -29,6 +29,8 @@ public class LessonPlanRequest {
     
     private boolean useRAG;
     
+    private boolean bypassCache;
+    
     private List<Map<String, String>> objectives;
     
     private List<String> keyPoints;
@@ -107,6 +109,14 @@ public class LessonPlanRequest {
         this.useRAG = useRAG;
     }
 
+    public boolean isBypassCache() {
+        return bypassCache;
+    }
+
+    public void setBypassCache(boolean bypassCache) {
+        this.bypassCache = bypassCache;
+    }
+
     public List<Map<String, String>> getObjectives() {
         return objectives;
     }
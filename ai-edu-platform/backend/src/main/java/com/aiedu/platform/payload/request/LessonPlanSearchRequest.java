@@ -0,0 +1,56 @@
+package com.aiedu.platform.payload.request;
+
+/**
+ * 教案搜索请求类，所有条件都是可选的
+ */
+public class LessonPlanSearchRequest {
+    private String q;
+
+    private String grade;
+
+    private String module;
+
+    private Integer minDuration;
+
+    private Integer maxDuration;
+
+    public String getQ() {
+        return q;
+    }
+
+    public void setQ(String q) {
+        this.q = q;
+    }
+
+    public String getGrade() {
+        return grade;
+    }
+
+    public void setGrade(String grade) {
+        this.grade = grade;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public void setModule(String module) {
+        this.module = module;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(Integer minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    public Integer getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Integer maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+}
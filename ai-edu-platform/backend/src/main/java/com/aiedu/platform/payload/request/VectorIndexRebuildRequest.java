@@ -0,0 +1,62 @@
+package com.aiedu.platform.payload.request;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 向量索引重建请求类，未指定的参数按文档数量自动选择
+ */
+public class VectorIndexRebuildRequest {
+    @NotBlank
+    @Pattern(regexp = "hnsw|ivfflat")
+    private String method;
+
+    // HNSW每个节点的最大连接数
+    @Min(4)
+    @Max(100)
+    private Integer m;
+
+    // HNSW构建时的候选列表大小
+    @Min(8)
+    @Max(1000)
+    private Integer efConstruction;
+
+    // IVFFlat的聚类数
+    @Min(1)
+    @Max(32768)
+    private Integer lists;
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public Integer getM() {
+        return m;
+    }
+
+    public void setM(Integer m) {
+        this.m = m;
+    }
+
+    public Integer getEfConstruction() {
+        return efConstruction;
+    }
+
+    public void setEfConstruction(Integer efConstruction) {
+        this.efConstruction = efConstruction;
+    }
+
+    public Integer getLists() {
+        return lists;
+    }
+
+    public void setLists(Integer lists) {
+        this.lists = lists;
+    }
+}
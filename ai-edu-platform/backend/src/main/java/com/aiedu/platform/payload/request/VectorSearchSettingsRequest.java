@@ -0,0 +1,35 @@
+package com.aiedu.platform.payload.request;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * 向量检索参数调整请求类，未指定的参数保持不变
+ */
+public class VectorSearchSettingsRequest {
+    // HNSW查询时的候选列表大小，越大召回率越高、查询越慢
+    @Min(1)
+    @Max(1000)
+    private Integer efSearch;
+
+    // IVFFlat查询时扫描的聚类数
+    @Min(1)
+    @Max(32768)
+    private Integer probes;
+
+    public Integer getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(Integer efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public Integer getProbes() {
+        return probes;
+    }
+
+    public void setProbes(Integer probes) {
+        this.probes = probes;
+    }
+}
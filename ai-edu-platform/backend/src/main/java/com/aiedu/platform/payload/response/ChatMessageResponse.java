@@ -0,0 +1,62 @@
+package com.aiedu.platform.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对话消息响应类，用于消息列表的轻量投影
+ */
+public class ChatMessageResponse {
+    private Long id;
+    private String content;
+    private String sender;
+    private Integer messageOrder;
+    private LocalDateTime createdAt;
+
+    public ChatMessageResponse(Long id, String content, String sender, Integer messageOrder, LocalDateTime createdAt) {
+        this.id = id;
+        this.content = content;
+        this.sender = sender;
+        this.messageOrder = messageOrder;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public void setSender(String sender) {
+        this.sender = sender;
+    }
+
+    public Integer getMessageOrder() {
+        return messageOrder;
+    }
+
+    public void setMessageOrder(Integer messageOrder) {
+        this.messageOrder = messageOrder;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
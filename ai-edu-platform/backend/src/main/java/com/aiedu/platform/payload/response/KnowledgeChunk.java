@@ -0,0 +1,52 @@
+package com.aiedu.platform.payload.response;
+
+import java.util.Map;
+
+/**
+ * 知识库文本块，作为检索结果随请求发送给AI服务
+ */
+public class KnowledgeChunk {
+    private Long id;
+    private String content;
+    private Map<String, Object> metadata;
+    private double similarity;
+
+    public KnowledgeChunk(Long id, String content, Map<String, Object> metadata, double similarity) {
+        this.id = id;
+        this.content = content;
+        this.metadata = metadata;
+        this.similarity = similarity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(Map<String, Object> metadata) {
+        this.metadata = metadata;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(double similarity) {
+        this.similarity = similarity;
+    }
+}
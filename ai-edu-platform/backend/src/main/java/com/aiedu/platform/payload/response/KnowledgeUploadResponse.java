@@ -0,0 +1,60 @@
+package com.aiedu.platform.payload.response;
+
+/**
+ * 知识库文件导入结果响应类
+ */
+public class KnowledgeUploadResponse {
+    private String message;
+    private String source;
+    private int chunksAdded;
+    private Integer pages;
+    private long elapsedMs;
+
+    public KnowledgeUploadResponse(String message, String source, int chunksAdded, Integer pages, long elapsedMs) {
+        this.message = message;
+        this.source = source;
+        this.chunksAdded = chunksAdded;
+        this.pages = pages;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public int getChunksAdded() {
+        return chunksAdded;
+    }
+
+    public void setChunksAdded(int chunksAdded) {
+        this.chunksAdded = chunksAdded;
+    }
+
+    public Integer getPages() {
+        return pages;
+    }
+
+    public void setPages(Integer pages) {
+        this.pages = pages;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+}
@@ -0,0 +1,73 @@
+package com.aiedu.platform.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 教案生成任务响应类
+ */
+public class LessonPlanJobResponse {
+    private String id;
+    private String status;
+    private LessonPlanResponse lessonPlan;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    public LessonPlanJobResponse(String id, String status, LessonPlanResponse lessonPlan, String error,
+                                 LocalDateTime createdAt, LocalDateTime completedAt) {
+        this.id = id;
+        this.status = status;
+        this.lessonPlan = lessonPlan;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LessonPlanResponse getLessonPlan() {
+        return lessonPlan;
+    }
+
+    public void setLessonPlan(LessonPlanResponse lessonPlan) {
+        this.lessonPlan = lessonPlan;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -1,5 +1,7 @@
 package com.aiedu.platform.payload.response;
 
+import com.aiedu.platform.model.LessonPlan;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +48,31 @@ public class LessonPlanResponse {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * 根据教案实体构建响应对象
+     * @param lessonPlan 教案
+     * @return 教案响应
+     */
+    public static LessonPlanResponse fromEntity(LessonPlan lessonPlan) {
+        return new LessonPlanResponse(
+                lessonPlan.getId(),
+                lessonPlan.getTitle(),
+                lessonPlan.getGrade(),
+                lessonPlan.getModule(),
+                lessonPlan.getKnowledgePoint(),
+                lessonPlan.getDuration(),
+                lessonPlan.getObjectivesList(),
+                lessonPlan.getKeyPointsList(),
+                lessonPlan.getDifficultPointsList(),
+                lessonPlan.getResourcesList(),
+                lessonPlan.getTeachingProcessList(),
+                lessonPlan.getEvaluation(),
+                lessonPlan.getExtension(),
+                lessonPlan.getCreatedAt(),
+                lessonPlan.getUpdatedAt()
+        );
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,74 @@
+package com.aiedu.platform.payload.response;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 教案搜索响应类，包含当前页的教案摘要、匹配总数以及年级和模块的分面计数
+ */
+public class LessonPlanSearchResponse {
+    private List<LessonPlanSummaryResponse> items;
+    private long total;
+    private int page;
+    private int size;
+    private Map<String, Long> gradeFacets;
+    private Map<String, Long> moduleFacets;
+
+    public LessonPlanSearchResponse(List<LessonPlanSummaryResponse> items, long total, int page, int size,
+                                    Map<String, Long> gradeFacets, Map<String, Long> moduleFacets) {
+        this.items = items;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.gradeFacets = gradeFacets;
+        this.moduleFacets = moduleFacets;
+    }
+
+    public List<LessonPlanSummaryResponse> getItems() {
+        return items;
+    }
+
+    public void setItems(List<LessonPlanSummaryResponse> items) {
+        this.items = items;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Map<String, Long> getGradeFacets() {
+        return gradeFacets;
+    }
+
+    public void setGradeFacets(Map<String, Long> gradeFacets) {
+        this.gradeFacets = gradeFacets;
+    }
+
+    public Map<String, Long> getModuleFacets() {
+        return moduleFacets;
+    }
+
+    public void setModuleFacets(Map<String, Long> moduleFacets) {
+        this.moduleFacets = moduleFacets;
+    }
+}
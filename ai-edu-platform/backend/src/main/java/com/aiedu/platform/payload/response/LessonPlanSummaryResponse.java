@@ -0,0 +1,93 @@
+package com.aiedu.platform.payload.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 教案摘要响应类，只包含列表展示需要的字段
+ */
+public class LessonPlanSummaryResponse {
+    private Long id;
+    private String title;
+    private String grade;
+    private String module;
+    private String knowledgePoint;
+    private Integer duration;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public LessonPlanSummaryResponse(Long id, String title, String grade, String module, String knowledgePoint,
+                                     Integer duration, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.grade = grade;
+        this.module = module;
+        this.knowledgePoint = knowledgePoint;
+        this.duration = duration;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getGrade() {
+        return grade;
+    }
+
+    public void setGrade(String grade) {
+        this.grade = grade;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public void setModule(String module) {
+        this.module = module;
+    }
+
+    public String getKnowledgePoint() {
+        return knowledgePoint;
+    }
+
+    public void setKnowledgePoint(String knowledgePoint) {
+        this.knowledgePoint = knowledgePoint;
+    }
+
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
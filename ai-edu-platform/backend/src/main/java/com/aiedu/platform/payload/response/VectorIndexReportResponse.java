@@ -0,0 +1,113 @@
+package com.aiedu.platform.payload.response;
+
+/**
+ * 向量索引召回率与延迟报告响应类
+ * 以抽样文档的向量作为查询，比较索引检索与精确检索（顺序扫描）的前k个结果
+ */
+public class VectorIndexReportResponse {
+    private int sampleSize;
+    private int k;
+    private int efSearch;
+    private int probes;
+    private double meanRecall;
+    private double minRecall;
+    private double annLatencyP50Ms;
+    private double annLatencyP95Ms;
+    private double exactLatencyP50Ms;
+    private double exactLatencyP95Ms;
+
+    public VectorIndexReportResponse(int sampleSize, int k, int efSearch, int probes, double meanRecall,
+                                     double minRecall, double annLatencyP50Ms, double annLatencyP95Ms,
+                                     double exactLatencyP50Ms, double exactLatencyP95Ms) {
+        this.sampleSize = sampleSize;
+        this.k = k;
+        this.efSearch = efSearch;
+        this.probes = probes;
+        this.meanRecall = meanRecall;
+        this.minRecall = minRecall;
+        this.annLatencyP50Ms = annLatencyP50Ms;
+        this.annLatencyP95Ms = annLatencyP95Ms;
+        this.exactLatencyP50Ms = exactLatencyP50Ms;
+        this.exactLatencyP95Ms = exactLatencyP95Ms;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public void setK(int k) {
+        this.k = k;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    public void setProbes(int probes) {
+        this.probes = probes;
+    }
+
+    public double getMeanRecall() {
+        return meanRecall;
+    }
+
+    public void setMeanRecall(double meanRecall) {
+        this.meanRecall = meanRecall;
+    }
+
+    public double getMinRecall() {
+        return minRecall;
+    }
+
+    public void setMinRecall(double minRecall) {
+        this.minRecall = minRecall;
+    }
+
+    public double getAnnLatencyP50Ms() {
+        return annLatencyP50Ms;
+    }
+
+    public void setAnnLatencyP50Ms(double annLatencyP50Ms) {
+        this.annLatencyP50Ms = annLatencyP50Ms;
+    }
+
+    public double getAnnLatencyP95Ms() {
+        return annLatencyP95Ms;
+    }
+
+    public void setAnnLatencyP95Ms(double annLatencyP95Ms) {
+        this.annLatencyP95Ms = annLatencyP95Ms;
+    }
+
+    public double getExactLatencyP50Ms() {
+        return exactLatencyP50Ms;
+    }
+
+    public void setExactLatencyP50Ms(double exactLatencyP50Ms) {
+        this.exactLatencyP50Ms = exactLatencyP50Ms;
+    }
+
+    public double getExactLatencyP95Ms() {
+        return exactLatencyP95Ms;
+    }
+
+    public void setExactLatencyP95Ms(double exactLatencyP95Ms) {
+        this.exactLatencyP95Ms = exactLatencyP95Ms;
+    }
+}
@@ -0,0 +1,112 @@
+package com.aiedu.platform.payload.response;
+
+import java.util.List;
+
+/**
+ * 向量索引状态响应类
+ */
+public class VectorIndexStatusResponse {
+    private long documentCount;
+    private List<IndexInfo> indexes;
+    private int efSearch;
+    private int probes;
+    private boolean rebuilding;
+
+    public VectorIndexStatusResponse(long documentCount, List<IndexInfo> indexes, int efSearch, int probes,
+                                     boolean rebuilding) {
+        this.documentCount = documentCount;
+        this.indexes = indexes;
+        this.efSearch = efSearch;
+        this.probes = probes;
+        this.rebuilding = rebuilding;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    public void setDocumentCount(long documentCount) {
+        this.documentCount = documentCount;
+    }
+
+    public List<IndexInfo> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(List<IndexInfo> indexes) {
+        this.indexes = indexes;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    public void setProbes(int probes) {
+        this.probes = probes;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding;
+    }
+
+    public void setRebuilding(boolean rebuilding) {
+        this.rebuilding = rebuilding;
+    }
+
+    /**
+     * 索引信息
+     */
+    public static class IndexInfo {
+        private String name;
+        private String definition;
+        private long sizeBytes;
+        private boolean valid;
+
+        public IndexInfo(String name, String definition, long sizeBytes, boolean valid) {
+            this.name = name;
+            this.definition = definition;
+            this.sizeBytes = sizeBytes;
+            this.valid = valid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getDefinition() {
+            return definition;
+        }
+
+        public void setDefinition(String definition) {
+            this.definition = definition;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public void setSizeBytes(long sizeBytes) {
+            this.sizeBytes = sizeBytes;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public void setValid(boolean valid) {
+            this.valid = valid;
+        }
+    }
+}
@@ -2,10 +2,19 @@ package com.aiedu.platform.repository;
 
 import com.aiedu.platform.model.Conversation;
 import com.aiedu.platform.model.User;
+import com.aiedu.platform.payload.response.ConversationResponse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 对话仓库接口，用于操作对话数据
@@ -26,4 +35,58 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
      * @return 对话对象
      */
     Conversation findByUserAndTitle(User user, String title);
+    
+    /**
+     * 查询用户最近更新的一页对话，按(updated_at, id)降序
+     * @param userId 用户ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 对话投影列表
+     */
+    @Query("select new com.aiedu.platform.payload.response.ConversationResponse(c.id, c.title, c.createdAt, c.updatedAt) "
+            + "from Conversation c where c.user.id = :userId order by c.updatedAt desc, c.id desc")
+    List<ConversationResponse> findFirstPageByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * 查询游标位置之后的一页对话，按(updated_at, id)降序
+     * @param userId 用户ID
+     * @param updatedAt 游标对话的更新时间
+     * @param id 游标对话的ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 对话投影列表
+     */
+    @Query("select new com.aiedu.platform.payload.response.ConversationResponse(c.id, c.title, c.createdAt, c.updatedAt) "
+            + "from Conversation c where c.user.id = :userId "
+            + "and (c.updatedAt < :updatedAt or (c.updatedAt = :updatedAt and c.id < :id)) "
+            + "order by c.updatedAt desc, c.id desc")
+    List<ConversationResponse> findPageByUserIdAfter(@Param("userId") Long userId,
+                                                     @Param("updatedAt") LocalDateTime updatedAt,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+    
+    /**
+     * 查询对话并对该行加写锁，锁在事务结束时释放
+     * @param id 对话ID
+     * @return 对话
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Conversation c where c.id = :id")
+    Optional<Conversation> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * 以单条UPDATE语句更新对话的时间、消息计数和历史摘要，避免先查询再合并实体
+     * @param id 对话ID
+     * @param updatedAt 更新时间
+     * @param messageCount 消息计数
+     * @param historySummary 历史摘要
+     * @param summarizedUpTo 已并入摘要的最大消息序号
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("update Conversation c set c.updatedAt = :updatedAt, c.messageCount = :messageCount, "
+            + "c.historySummary = :historySummary, c.summarizedUpTo = :summarizedUpTo where c.id = :id")
+    int touch(@Param("id") Long id,
+              @Param("updatedAt") LocalDateTime updatedAt,
+              @Param("messageCount") Integer messageCount,
+              @Param("historySummary") String historySummary,
+              @Param("summarizedUpTo") Integer summarizedUpTo);
 }
\ No newline at end of file
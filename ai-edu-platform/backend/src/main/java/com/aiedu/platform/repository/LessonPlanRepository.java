@@ -2,16 +2,21 @@ package com.aiedu.platform.repository;
 
 import com.aiedu.platform.model.LessonPlan;
 import com.aiedu.platform.model.User;
+import com.aiedu.platform.payload.response.LessonPlanSummaryResponse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * 教案仓库接口，用于操作教案数据
  */
 @Repository
-public interface LessonPlanRepository extends JpaRepository<LessonPlan, Long> {
+public interface LessonPlanRepository extends JpaRepository<LessonPlan, Long>, LessonPlanSearchRepository {
     /**
      * 根据用户查找教案列表，按创建时间降序排序
      * @param user 用户
@@ -42,4 +47,33 @@ public interface LessonPlanRepository extends JpaRepository<LessonPlan, Long> {
      * @return 教案列表
      */
     List<LessonPlan> findByUserAndModuleOrderByCreatedAtDesc(User user, String module);
-}
\ No newline at end of file
+    
+    /**
+     * 查询用户最新的一页教案摘要，按(created_at, id)降序，不读取教案正文的TEXT列
+     * @param userId 用户ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 教案摘要列表
+     */
+    @Query("select new com.aiedu.platform.payload.response.LessonPlanSummaryResponse("
+            + "l.id, l.title, l.grade, l.module, l.knowledgePoint, l.duration, l.createdAt, l.updatedAt) "
+            + "from LessonPlan l where l.user.id = :userId order by l.createdAt desc, l.id desc")
+    List<LessonPlanSummaryResponse> findSummaryFirstPageByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * 查询游标位置之后的一页教案摘要，按(created_at, id)降序
+     * @param userId 用户ID
+     * @param createdAt 游标教案的创建时间
+     * @param id 游标教案的ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 教案摘要列表
+     */
+    @Query("select new com.aiedu.platform.payload.response.LessonPlanSummaryResponse("
+            + "l.id, l.title, l.grade, l.module, l.knowledgePoint, l.duration, l.createdAt, l.updatedAt) "
+            + "from LessonPlan l where l.user.id = :userId "
+            + "and (l.createdAt < :createdAt or (l.createdAt = :createdAt and l.id < :id)) "
+            + "order by l.createdAt desc, l.id desc")
+    List<LessonPlanSummaryResponse> findSummaryPageByUserIdAfter(@Param("userId") Long userId,
+                                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                                 @Param("id") Long id,
+                                                                 Pageable pageable);
+}
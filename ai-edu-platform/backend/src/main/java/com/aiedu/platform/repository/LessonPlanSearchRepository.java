@@ -0,0 +1,19 @@
+package com.aiedu.platform.repository;
+
+import com.aiedu.platform.payload.request.LessonPlanSearchRequest;
+import com.aiedu.platform.payload.response.LessonPlanSearchResponse;
+
+/**
+ * 教案搜索仓库接口，基于search_vector生成列的全文检索和分面过滤
+ */
+public interface LessonPlanSearchRepository {
+    /**
+     * 搜索用户的教案，有关键词时按相关度排序，否则按创建时间降序
+     * @param userId 用户ID
+     * @param request 搜索条件
+     * @param page 页码，从0开始
+     * @param size 每页数量
+     * @return 搜索结果
+     */
+    LessonPlanSearchResponse search(Long userId, LessonPlanSearchRequest request, int page, int size);
+}
@@ -0,0 +1,108 @@
+package com.aiedu.platform.repository;
+
+import com.aiedu.platform.payload.request.LessonPlanSearchRequest;
+import com.aiedu.platform.payload.response.LessonPlanSearchResponse;
+import com.aiedu.platform.payload.response.LessonPlanSummaryResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 教案搜索仓库实现
+ * 关键词同时匹配search_vector（按词检索并计算相关度）和标题、知识点的子串（中文不以空格分词），
+ * 两者都有GIN索引；年级、模块和课时作为过滤条件，分面计数通过一次grouping sets查询得到
+ */
+public class LessonPlanSearchRepositoryImpl implements LessonPlanSearchRepository {
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public LessonPlanSearchResponse search(Long userId, LessonPlanSearchRequest request, int page, int size) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        StringBuilder where = new StringBuilder(" where l.user_id = :userId");
+
+        if (StringUtils.hasText(request.getGrade())) {
+            where.append(" and l.grade = :grade");
+            params.addValue("grade", request.getGrade().trim());
+        }
+        if (StringUtils.hasText(request.getModule())) {
+            where.append(" and l.module = :module");
+            params.addValue("module", request.getModule().trim());
+        }
+        if (request.getMinDuration() != null) {
+            where.append(" and l.duration >= :minDuration");
+            params.addValue("minDuration", request.getMinDuration());
+        }
+        if (request.getMaxDuration() != null) {
+            where.append(" and l.duration <= :maxDuration");
+            params.addValue("maxDuration", request.getMaxDuration());
+        }
+
+        // 没有关键词时不按相关度排序：order by 0会被PostgreSQL当作列序号而报错
+        String orderBy = "l.created_at desc, l.id desc";
+        if (StringUtils.hasText(request.getQ())) {
+            String q = request.getQ().trim();
+            where.append(" and (l.search_vector @@ websearch_to_tsquery('simple', :q)"
+                    + " or (coalesce(l.title, '') || ' ' || coalesce(l.knowledge_point, '')) ilike :pattern escape '\\')");
+            params.addValue("q", q);
+            params.addValue("pattern", "%" + escapeLike(q) + "%");
+            orderBy = "ts_rank(l.search_vector, websearch_to_tsquery('simple', :q)) desc, " + orderBy;
+        }
+
+        params.addValue("limit", size);
+        params.addValue("offset", (long) page * size);
+        List<LessonPlanSummaryResponse> items = jdbcTemplate.query(
+                "select l.id, l.title, l.grade, l.module, l.knowledge_point, l.duration, l.created_at, l.updated_at"
+                        + " from lesson_plans l" + where
+                        + " order by " + orderBy + " limit :limit offset :offset",
+                params,
+                (rs, rowNum) -> new LessonPlanSummaryResponse(
+                        rs.getLong("id"),
+                        rs.getString("title"),
+                        rs.getString("grade"),
+                        rs.getString("module"),
+                        rs.getString("knowledge_point"),
+                        rs.getObject("duration", Integer.class),
+                        toLocalDateTime(rs.getTimestamp("created_at")),
+                        toLocalDateTime(rs.getTimestamp("updated_at"))
+                ));
+
+        // 分面计数：grouping(l.grade)为0的行按年级分组，为1的行按模块分组
+        Map<String, Long> gradeFacets = new LinkedHashMap<>();
+        Map<String, Long> moduleFacets = new LinkedHashMap<>();
+        long[] total = {0};
+        jdbcTemplate.query(
+                "select grouping(l.grade) as by_module, l.grade, l.module, count(*) as cnt"
+                        + " from lesson_plans l" + where
+                        + " group by grouping sets ((l.grade), (l.module)) order by cnt desc",
+                params,
+                rs -> {
+                    long count = rs.getLong("cnt");
+                    if (rs.getInt("by_module") == 0) {
+                        total[0] += count;
+                        if (rs.getString("grade") != null) {
+                            gradeFacets.put(rs.getString("grade"), count);
+                        }
+                    } else if (rs.getString("module") != null) {
+                        moduleFacets.put(rs.getString("module"), count);
+                    }
+                });
+
+        return new LessonPlanSearchResponse(items, total[0], page, size, gradeFacets, moduleFacets);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -2,7 +2,12 @@ package com.aiedu.platform.repository;
 
 import com.aiedu.platform.model.Conversation;
 import com.aiedu.platform.model.Message;
+import com.aiedu.platform.payload.response.ChatMessageResponse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,4 +29,72 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      * @param conversation 对话
      */
     void deleteByConversation(Conversation conversation);
+    
+    /**
+     * 按消息序号降序分页查找对话的最近消息
+     * @param conversation 对话
+     * @param pageable 分页参数
+     * @return 消息列表
+     */
+    List<Message> findByConversationOrderByMessageOrderDesc(Conversation conversation, Pageable pageable);
+    
+    /**
+     * 按消息序号降序分页查找指定序号区间（开区间）内的消息
+     * @param conversation 对话
+     * @param fromOrder 起始序号（不含）
+     * @param toOrder 结束序号（不含）
+     * @param pageable 分页参数
+     * @return 消息列表
+     */
+    @Query("select m from Message m where m.conversation = :conversation "
+            + "and m.messageOrder > :fromOrder and m.messageOrder < :toOrder order by m.messageOrder desc")
+    List<Message> findByConversationAndOrderBetween(@Param("conversation") Conversation conversation,
+                                                    @Param("fromOrder") Integer fromOrder,
+                                                    @Param("toOrder") Integer toOrder,
+                                                    Pageable pageable);
+    
+    /**
+     * 查询对话最新的一页消息，按(message_order, id)降序
+     * @param conversationId 对话ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 消息投影列表
+     */
+    @Query("select new com.aiedu.platform.payload.response.ChatMessageResponse(m.id, m.content, m.sender, m.messageOrder, m.createdAt) "
+            + "from Message m where m.conversation.id = :conversationId order by m.messageOrder desc, m.id desc")
+    List<ChatMessageResponse> findLatestPage(@Param("conversationId") Long conversationId, Pageable pageable);
+    
+    /**
+     * 查询游标位置之前（更早）的一页消息，按(message_order, id)降序
+     * @param conversationId 对话ID
+     * @param messageOrder 游标消息的序号
+     * @param id 游标消息的ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 消息投影列表
+     */
+    @Query("select new com.aiedu.platform.payload.response.ChatMessageResponse(m.id, m.content, m.sender, m.messageOrder, m.createdAt) "
+            + "from Message m where m.conversation.id = :conversationId "
+            + "and (m.messageOrder < :messageOrder or (m.messageOrder = :messageOrder and m.id < :id)) "
+            + "order by m.messageOrder desc, m.id desc")
+    List<ChatMessageResponse> findPageBefore(@Param("conversationId") Long conversationId,
+                                             @Param("messageOrder") Integer messageOrder,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+    
+    /**
+     * 统计对话的消息数量
+     * @param conversation 对话
+     * @return 消息数量
+     */
+    long countByConversation(Conversation conversation);
+    
+    /**
+     * 按创建时间为对话中的所有消息重新编号message_order，用于回填旧数据
+     * @param conversationId 对话ID
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = "update messages m set message_order = s.rn from ("
+            + "select id, row_number() over (order by created_at, id) as rn from messages "
+            + "where conversation_id = :conversationId) s where m.id = s.id", nativeQuery = true)
+    int backfillMessageOrder(@Param("conversationId") Long conversationId);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.aiedu.platform.repository;
 
 import com.aiedu.platform.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -18,6 +19,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByUsername(String username);
 
+    /**
+     * 根据用户名查找用户，并在同一查询中加载角色
+     * @param username 用户名
+     * @return 用户对象
+     */
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
+
     /**
      * 根据邮箱查找用户
      * @param email 邮箱
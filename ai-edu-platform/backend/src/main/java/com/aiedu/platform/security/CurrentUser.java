@@ -0,0 +1,18 @@
+package com.aiedu.platform.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在控制器方法的User参数上，注入当前已认证的用户
+ * 注入的是只包含ID的实体引用，只能用于关联和ID比较
+ * 用户不存在（如令牌未过期但用户已删除）时返回401，存在性检查结果会缓存，不会每次请求都查询数据库
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
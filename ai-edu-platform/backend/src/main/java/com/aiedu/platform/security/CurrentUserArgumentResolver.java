@@ -0,0 +1,67 @@
+package com.aiedu.platform.security;
+
+import com.aiedu.platform.model.User;
+import com.aiedu.platform.repository.UserRepository;
+import com.aiedu.platform.security.services.UserDetailsImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.time.Duration;
+
+/**
+ * 解析@CurrentUser参数，根据认证信息中的用户ID返回用户实体引用
+ * 令牌中的用户可能已被删除，返回引用前确认用户仍然存在，确认结果按用户缓存的有效期缓存
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+    private final UserRepository userRepository;
+
+    private final Cache<Long, Boolean> existingUsers;
+
+    public CurrentUserArgumentResolver(UserRepository userRepository,
+                                       @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds,
+                                       @Value("${security.user-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.existingUsers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && User.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetailsImpl)) {
+            throw new AuthenticationCredentialsNotFoundException("未认证的用户");
+        }
+
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        Long userId = userDetails.getId();
+        // 只缓存存在的用户，已删除用户的请求每次都会查询并以401拒绝
+        if (existingUsers.getIfPresent(userId) == null) {
+            if (!userRepository.existsById(userId)) {
+                throw new UsernameNotFoundException("用户不存在");
+            }
+            existingUsers.put(userId, Boolean.TRUE);
+        }
+        return userRepository.getReferenceById(userId);
+    }
+}
@@ -1,14 +1,32 @@
 package com.aiedu.platform.security.jwt;
 
 import com.aiedu.platform.security.services.UserDetailsImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * JWT工具类，用于生成和验证JWT令牌
@@ -17,22 +35,74 @@ import java.util.Date;
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLES = "roles";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    @Value("${jwt.verified-cache.ttl-seconds:300}")
+    private long verifiedCacheTtlSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JwtParser jwtParser;
+
+    // 令牌验证耗时，按是否命中缓存和验证结果区分
+    private Timer cachedValidTimer;
+    private Timer cachedInvalidTimer;
+    private Timer parsedValidTimer;
+    private Timer parsedInvalidTimer;
+
+    // 最近验证通过的令牌（按SHA-256摘要索引），命中时跳过签名校验和解析
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(Decoders.BASE64.decode(jwtSecret))
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(verifiedCacheTtlSeconds))
+                .build();
+        this.cachedValidTimer = validationTimer("hit", "valid");
+        this.cachedInvalidTimer = validationTimer("hit", "invalid");
+        this.parsedValidTimer = validationTimer("miss", "valid");
+        this.parsedInvalidTimer = validationTimer("miss", "invalid");
+    }
+
+    private Timer validationTimer(String cache, String outcome) {
+        return Timer.builder("auth.jwt.validation")
+                .tag("cache", cache)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     /**
-     * 从认证信息生成JWT令牌
+     * 从认证信息生成JWT令牌，令牌中携带用户ID、邮箱和角色，验证时无需查询数据库
      * @param authentication 认证信息
      * @return JWT令牌
      */
     public String generateJwtToken(Authentication authentication) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
 
         return Jwts.builder()
                 .setSubject((userPrincipal.getUsername()))
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_EMAIL, userPrincipal.getEmail())
+                .claim(CLAIM_ROLES, roles)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
                 .signWith(SignatureAlgorithm.HS512, jwtSecret)
@@ -45,7 +115,7 @@ public class JwtUtils {
      * @return 用户名
      */
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+        return jwtParser.parseClaimsJws(token).getBody().getSubject();
     }
 
     /**
@@ -54,9 +124,35 @@ public class JwtUtils {
      * @return 是否有效
      */
     public boolean validateJwtToken(String authToken) {
+        return getVerifiedClaims(authToken) != null;
+    }
+
+    /**
+     * 验证JWT令牌并返回其声明，签名校验和解析只进行一次
+     * 最近验证过的令牌直接从缓存返回，但仍会检查是否已过期
+     * @param authToken JWT令牌
+     * @return 令牌声明，令牌无效时返回null
+     */
+    public Claims getVerifiedClaims(String authToken) {
+        long start = System.nanoTime();
+        String tokenHash = hash(authToken);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            if (cached.getExpiration() == null || cached.getExpiration().after(new Date())) {
+                cachedValidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return cached;
+            }
+            verifiedTokens.invalidate(tokenHash);
+            logger.error("JWT令牌已过期: {}", cached.getExpiration());
+            cachedInvalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return null;
+        }
+
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            Claims claims = jwtParser.parseClaimsJws(authToken).getBody();
+            verifiedTokens.put(tokenHash, claims);
+            parsedValidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
         } catch (SignatureException e) {
             logger.error("无效的JWT签名: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -69,6 +165,45 @@ public class JwtUtils {
             logger.error("JWT声明为空: {}", e.getMessage());
         }
 
-        return false;
+        parsedInvalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return null;
+    }
+
+    /**
+     * 根据令牌声明构建用户详情
+     * @param claims 令牌声明
+     * @return 用户详情，旧版本令牌缺少用户ID或角色时返回null
+     */
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        Object roles = claims.get(CLAIM_ROLES);
+        if (userId == null || !(roles instanceof Collection)) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = ((Collection<?>) roles).stream()
+                .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .collect(Collectors.toList());
+
+        return new UserDetailsImpl(
+                userId.longValue(),
+                claims.getSubject(),
+                claims.get(CLAIM_EMAIL, String.class),
+                null,
+                authorities);
+    }
+
+    /**
+     * 计算令牌的SHA-256摘要，缓存中不保存令牌原文
+     * @param token JWT令牌
+     * @return 摘要
+     */
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
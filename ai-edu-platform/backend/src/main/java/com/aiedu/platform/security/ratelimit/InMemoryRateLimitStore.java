@@ -0,0 +1,57 @@
+package com.aiedu.platform.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 基于内存的令牌桶存储
+ * 每个桶单独加锁，不同用户之间没有锁竞争；长时间未访问的桶自动淘汰，淘汰后重新以满桶创建
+ */
+@Component
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public InMemoryRateLimitStore(@Value("${rate-limit.store.max-size:100000}") long maxSize,
+                                  @Value("${rate-limit.store.idle-minutes:30}") long idleMinutes) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    @Override
+    public long tryConsume(String key, long capacity, double refillPerSecond) {
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(capacity));
+        return bucket.tryConsume(capacity, refillPerSecond);
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(long capacity) {
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        private synchronized long tryConsume(long capacity, double refillPerSecond) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1e9 * refillPerSecond);
+            lastRefillNanos = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            if (refillPerSecond <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return (long) Math.ceil((1 - tokens) / refillPerSecond * 1000);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.aiedu.platform.security.ratelimit;
+
+import com.aiedu.platform.security.services.UserDetailsImpl;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 对话和教案生成接口的限流过滤器
+ * 在JWT认证之后执行，按用户ID和角色使用令牌桶限流，对话和教案生成各有独立的预算，
+ * 超出预算时返回429和Retry-After响应头
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String[] ROLES = {"ADMIN", "TEACHER", "STUDENT"};
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    /**
+     * 受限流的接口类别
+     */
+    enum Category {
+        CHAT("chat", "/api/chat/conversations/*/messages", "/api/chat/conversations/*/messages/stream"),
+        GENERATION("generation", "/api/lesson-plans/generate", "/api/lesson-plans/jobs", "/api/knowledge/upload");
+
+        private final String name;
+        private final String[] patterns;
+
+        Category(String name, String... patterns) {
+            this.name = name;
+            this.patterns = patterns;
+        }
+    }
+
+    private final RateLimitStore rateLimitStore;
+
+    private final boolean enabled;
+
+    // 类别 -> 角色 -> [容量, 每秒补充的令牌数]
+    private final Map<Category, Map<String, double[]>> budgets = new EnumMap<>(Category.class);
+
+    public RateLimitFilter(RateLimitStore rateLimitStore, Environment environment) {
+        this.rateLimitStore = rateLimitStore;
+        this.enabled = environment.getProperty("rate-limit.enabled", Boolean.class, true);
+        for (Category category : Category.values()) {
+            Map<String, double[]> byRole = new HashMap<>();
+            for (String role : ROLES) {
+                String prefix = "rate-limit." + category.name + "." + role.toLowerCase(Locale.ROOT);
+                long capacity = environment.getProperty(prefix + ".capacity", Long.class, 10L);
+                double refillPerMinute = environment.getProperty(prefix + ".refill-per-minute", Double.class, 5.0);
+                byRole.put(role, new double[]{capacity, refillPerMinute / 60.0});
+            }
+            budgets.put(category, byRole);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Category category = resolveCategory(request);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (category == null || authentication == null || !(authentication.getPrincipal() instanceof UserDetailsImpl)) {
+            // 未认证的请求交给后续的安全检查处理
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        UserDetailsImpl user = (UserDetailsImpl) authentication.getPrincipal();
+        double[] budget = budgets.get(category).get(resolveRole(user));
+        long waitMs = rateLimitStore.tryConsume(category.name + ":" + user.getId(), (long) budget[0], budget[1]);
+        if (waitMs == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (waitMs + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"message\":\"请求过于频繁，请在" + retryAfterSeconds + "秒后再试\"}");
+    }
+
+    /**
+     * 根据请求路径确定限流类别，路径不含上下文路径
+     * 路径按Spring MVC的方式解码和清理（去除;参数、合并重复的斜杠），并忽略末尾的一个斜杠，
+     * 与DispatcherServlet的尾斜杠匹配保持一致，避免/messages/这类路径绕过限流
+     * @param request 请求
+     * @return 限流类别，不受限流的请求返回null
+     */
+    private static Category resolveCategory(HttpServletRequest request) {
+        String path = URL_PATH_HELPER.getPathWithinApplication(request);
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        for (Category category : Category.values()) {
+            for (String pattern : category.patterns) {
+                if (PATH_MATCHER.match(pattern, path)) {
+                    return category;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 取用户权限最高的角色作为限流预算的依据
+     * @param user 用户
+     * @return 角色名
+     */
+    private static String resolveRole(UserDetailsImpl user) {
+        Set<String> authorities = new HashSet<>();
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            authorities.add(authority.getAuthority());
+        }
+        for (String role : ROLES) {
+            if (authorities.contains("ROLE_" + role)) {
+                return role;
+            }
+        }
+        return "STUDENT";
+    }
+}
@@ -0,0 +1,16 @@
+package com.aiedu.platform.security.ratelimit;
+
+/**
+ * 令牌桶存储接口
+ * 默认实现保存在单个实例的内存中；多实例部署时可以提供基于共享存储（如Redis）的实现作为@Primary bean
+ */
+public interface RateLimitStore {
+    /**
+     * 尝试从令牌桶中取出一个令牌，桶不存在时以满桶创建
+     * @param key 令牌桶标识
+     * @param capacity 桶容量，即允许的突发请求数
+     * @param refillPerSecond 每秒补充的令牌数
+     * @return 0表示取到令牌；否则为距离下一个令牌可用的毫秒数
+     */
+    long tryConsume(String key, long capacity, double refillPerSecond);
+}
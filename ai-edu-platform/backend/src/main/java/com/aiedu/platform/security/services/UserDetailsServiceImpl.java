@@ -1,34 +1,78 @@
 package com.aiedu.platform.security.services;
 
 import com.aiedu.platform.model.User;
+import com.aiedu.platform.model.UserChangedEvent;
 import com.aiedu.platform.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 /**
  * 用户详情服务实现类，用于加载用户信息
+ * 已认证用户的详情缓存在内存中，用户信息保存后自动失效
  */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    private final Cache<String, UserDetailsImpl> userCache;
+
+    public UserDetailsServiceImpl(@Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds,
+                                  @Value("${security.user-cache.max-size:10000}") long maxSize) {
+        this.userCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
     /**
-     * 根据用户名加载用户信息
+     * 根据用户名加载用户信息，优先从缓存读取
      * @param username 用户名
      * @return 用户详情
      * @throws UsernameNotFoundException 用户不存在异常
      */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        return userCache.get(username, this::loadFromDatabase);
+    }
+
+    /**
+     * 使指定用户的缓存失效
+     * @param username 用户名
+     */
+    public void evictUser(String username) {
+        if (username != null) {
+            userCache.invalidate(username);
+        }
+    }
+
+    /**
+     * 用户信息（密码、角色等）保存并提交后使其缓存失效
+     * @param event 用户变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evictUser(event.getUsername());
+    }
+
+    /**
+     * 从数据库加载用户及其角色
+     * @param username 用户名
+     * @return 用户详情
+     */
+    private UserDetailsImpl loadFromDatabase(String username) {
+        User user = userRepository.findWithRolesByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("未找到用户: " + username));
 
         return UserDetailsImpl.build(user);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.payload.response.ChatResponse;
+import com.aiedu.platform.payload.response.KnowledgeChunk;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI服务调用指标
+ * ai.client.requests按操作、结果和重试次数记录调用耗时，ai.client.payload.size记录请求和响应的字符数
+ */
+@Component
+public class AIMetrics {
+    private final MeterRegistry meterRegistry;
+
+    public AIMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录一次调用（含重试）的耗时和结果
+     * @param operation 操作名
+     * @param retries 本次调用的重试计数
+     * @param call 调用
+     * @return 带指标记录的调用
+     */
+    public <T> Mono<T> timed(String operation, AtomicInteger retries, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnSuccess(value -> stop(sample, operation, value != null ? "success" : "empty", retries.get()))
+                    .doOnError(e -> stop(sample, operation, outcomeOf(e), retries.get()))
+                    .doOnCancel(() -> stop(sample, operation, "cancelled", retries.get()));
+        });
+    }
+
+    /**
+     * 记录一次流式调用的总耗时、结果和响应字符数
+     * @param operation 操作名
+     * @param stream 流式调用
+     * @return 带指标记录的流式调用
+     */
+    public Flux<String> timedStream(String operation, Flux<String> stream) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicLong chars = new AtomicLong();
+            return stream
+                    .doOnNext(chunk -> chars.addAndGet(chunk.length()))
+                    .doOnComplete(() -> {
+                        stop(sample, operation, "success", 0);
+                        recordResponseSize(operation, chars.get());
+                    })
+                    .doOnError(e -> stop(sample, operation, outcomeOf(e), 0))
+                    .doOnCancel(() -> stop(sample, operation, "cancelled", 0));
+        });
+    }
+
+    /**
+     * 记录请求体的字符数
+     * @param operation 操作名
+     * @param body 请求体
+     */
+    public void recordRequestSize(String operation, Object body) {
+        payloadSize(operation, "request").record(estimateChars(body));
+    }
+
+    /**
+     * 记录响应体的字符数
+     * @param operation 操作名
+     * @param body 响应体
+     */
+    public void recordResponseSize(String operation, Object body) {
+        payloadSize(operation, "response").record(estimateChars(body));
+    }
+
+    private void recordResponseSize(String operation, long chars) {
+        payloadSize(operation, "response").record(chars);
+    }
+
+    private DistributionSummary payloadSize(String operation, String direction) {
+        return DistributionSummary.builder("ai.client.payload.size")
+                .baseUnit("chars")
+                .tag("operation", operation)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private void stop(Timer.Sample sample, String operation, String outcome, int retries) {
+        sample.stop(Timer.builder("ai.client.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("retries", String.valueOf(retries))
+                .register(meterRegistry));
+    }
+
+    private static String outcomeOf(Throwable e) {
+        return e instanceof AIServiceUnavailableException ? "rejected" : "error";
+    }
+
+    /**
+     * 估算JSON结构中文本内容的字符数，避免为了统计而重复序列化
+     * @param value 请求或响应体
+     * @return 字符数
+     */
+    private static long estimateChars(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        }
+        if (value instanceof Map) {
+            long chars = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                chars += estimateChars(entry.getKey()) + estimateChars(entry.getValue());
+            }
+            return chars;
+        }
+        if (value instanceof Collection) {
+            long chars = 0;
+            for (Object item : (Collection<?>) value) {
+                chars += estimateChars(item);
+            }
+            return chars;
+        }
+        if (value instanceof ChatResponse.MessageDto) {
+            ChatResponse.MessageDto message = (ChatResponse.MessageDto) value;
+            return estimateChars(message.getSender()) + estimateChars(message.getContent());
+        }
+        if (value instanceof KnowledgeChunk) {
+            return estimateChars(((KnowledgeChunk) value).getContent());
+        }
+        return String.valueOf(value).length();
+    }
+}
@@ -0,0 +1,41 @@
+package com.aiedu.platform.service;
+
+/**
+ * 多智能体服务的回复（或流式回复的一个片段）
+ * AI服务失败或响应无效时返回给用户的兜底回复会被标记，调用方据此决定是否缓存，不需要解析回复文本
+ */
+public final class AIReply {
+    private final String content;
+    private final boolean fallback;
+
+    private AIReply(String content, boolean fallback) {
+        this.content = content;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 上游服务返回的回复
+     * @param content 回复内容
+     * @return 回复
+     */
+    public static AIReply of(String content) {
+        return new AIReply(content, false);
+    }
+
+    /**
+     * AI服务失败时生成的兜底回复
+     * @param content 回复内容
+     * @return 兜底回复
+     */
+    public static AIReply fallback(String content) {
+        return new AIReply(content, true);
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+}
@@ -2,15 +2,36 @@ package com.aiedu.platform.service;
 
 import com.aiedu.platform.model.LessonPlan;
 import com.aiedu.platform.payload.response.ChatResponse;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * AI服务类，用于与AI服务进行交互
@@ -18,80 +39,220 @@ import java.util.*;
 @Service
 public class AIService {
     
+    private static final Logger logger = LoggerFactory.getLogger(AIService.class);
+    
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<Map<String, Object>>() {};
+    
     @Value("${ai.service.multi-agent.url}")
     private String multiAgentServiceUrl;
     
     @Value("${ai.service.single-agent.url}")
     private String singleAgentServiceUrl;
     
-    private final RestTemplate restTemplate;
+    @Value("${ai.client.max-retries:3}")
+    private int maxRetries;
+    
+    @Value("${ai.client.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+    
+    @Value("${ai.logging.sample-rate:0.01}")
+    private double logSampleRate;
+    
+    @Value("${ai.logging.max-payload-chars:500}")
+    private int logMaxPayloadChars;
+    
+    private final WebClient webClient;
+    
+    private final CircuitBreaker multiAgentCircuitBreaker;
+    
+    private final CircuitBreaker multiAgentStreamCircuitBreaker;
+    
+    private final CircuitBreaker singleAgentCircuitBreaker;
     
-    public AIService() {
-        this.restTemplate = new RestTemplate();
+    private final Bulkhead chatBulkhead;
+    
+    private final Bulkhead lessonPlanBulkhead;
+    
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    
+    private final AIMetrics aiMetrics;
+    
+    private final KnowledgeRetrievalService knowledgeRetrievalService;
+    
+    // 多智能体服务没有/chat/stream接口时（返回404或405）置为true，之后的流式请求直接使用非流式接口
+    private volatile boolean streamUnsupported;
+    
+    public AIService(@Qualifier("aiWebClient") WebClient webClient,
+                     @Qualifier("multiAgentCircuitBreaker") CircuitBreaker multiAgentCircuitBreaker,
+                     @Qualifier("multiAgentStreamCircuitBreaker") CircuitBreaker multiAgentStreamCircuitBreaker,
+                     @Qualifier("singleAgentCircuitBreaker") CircuitBreaker singleAgentCircuitBreaker,
+                     @Qualifier("chatBulkhead") Bulkhead chatBulkhead,
+                     @Qualifier("lessonPlanBulkhead") Bulkhead lessonPlanBulkhead,
+                     AdaptiveConcurrencyLimiter concurrencyLimiter,
+                     AIMetrics aiMetrics,
+                     KnowledgeRetrievalService knowledgeRetrievalService) {
+        this.webClient = webClient;
+        this.multiAgentCircuitBreaker = multiAgentCircuitBreaker;
+        this.multiAgentStreamCircuitBreaker = multiAgentStreamCircuitBreaker;
+        this.singleAgentCircuitBreaker = singleAgentCircuitBreaker;
+        this.chatBulkhead = chatBulkhead;
+        this.lessonPlanBulkhead = lessonPlanBulkhead;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.aiMetrics = aiMetrics;
+        this.knowledgeRetrievalService = knowledgeRetrievalService;
     }
     
     /**
      * 获取多智能体系统的回复
      * @param history 对话历史
      * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return AI回复
+     */
+    public String getMultiAgentReply(List<ChatResponse.MessageDto> history, String message, boolean useRAG) {
+        return getMultiAgentReplyAsync(history, message, useRAG).block();
+    }
+    
+    /**
+     * 以非阻塞方式获取多智能体系统的回复
+     * 重试在定时器上等待，不占用调用线程；每一次尝试先在并发限制器中排队，获得许可后才占用隔离舱，
+     * 排队中的调用不占隔离舱名额，退避等待期间也不占用许可和隔离舱；熔断器统计每一次尝试
+     * @param history 对话历史
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强，后端检索启用时以用户消息检索知识库并随请求发送
      * @return AI回复
+     * @throws AIServiceUnavailableException 熔断器打开或并发已满
      */
-    public String getMultiAgentReply(List<ChatResponse.MessageDto> history, String message) {
-        int maxRetries = 3;
-        int retryCount = 0;
-        
-        while (retryCount < maxRetries) {
-            try {
-                // 准备请求头
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-                
-                // 准备请求体
-                Map<String, Object> requestBody = new HashMap<>();
-                requestBody.put("history", history);
-                requestBody.put("message", message);
-                
-                // 创建请求实体
-                HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-                
-                // 记录请求信息
-                System.out.println("发送请求到AI服务: " + multiAgentServiceUrl + "/chat");
-                System.out.println("请求体: " + requestBody);
-                
-                // 发送请求
-                ResponseEntity<Map> response = restTemplate.postForEntity(
-                        multiAgentServiceUrl + "/chat",
-                        request,
-                        Map.class
-                );
-                
-                // 解析响应
-                Map<String, Object> responseBody = response.getBody();
-                if (responseBody != null && responseBody.containsKey("reply")) {
-                    return (String) responseBody.get("reply");
-                } else {
-                    System.out.println("AI服务返回了无效的响应格式: " + responseBody);
-                    return "抱歉，AI服务暂时无法回复，请稍后再试。";
-                }
-            } catch (Exception e) {
-                retryCount++;
-                System.err.println("连接AI服务时出现错误 (尝试 " + retryCount + "/" + maxRetries + "): " + e.getMessage());
-                
-                if (retryCount >= maxRetries) {
-                    e.printStackTrace();
-                    return "抱歉，连接AI服务时出现错误，请稍后再试。错误详情: " + e.getMessage();
-                }
-                
-                // 等待一段时间后重试
-                try {
-                    Thread.sleep(1000 * retryCount);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
-            }
+    public Mono<String> getMultiAgentReplyAsync(List<ChatResponse.MessageDto> history, String message,
+                                                boolean useRAG) {
+        return getMultiAgentReplyResult(history, message, useRAG).map(AIReply::getContent);
+    }
+    
+    /**
+     * 以非阻塞方式获取多智能体系统的回复，AI服务失败或响应无效时返回标记为兜底的回复
+     * @param history 对话历史
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return AI回复
+     * @throws AIServiceUnavailableException 熔断器打开或并发已满
+     */
+    public Mono<AIReply> getMultiAgentReplyResult(List<ChatResponse.MessageDto> history, String message,
+                                                  boolean useRAG) {
+        // 准备请求体
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("history", history);
+        requestBody.put("message", message);
+        requestBody.put("useRAG", useRAG);
+        
+        String userKey = currentUserKey();
+        
+        AtomicInteger retries = new AtomicInteger();
+        Mono<Map<String, Object>> call = withKnowledgeContext(requestBody, useRAG, message)
+                .flatMap(body -> {
+                    // 记录请求信息
+                    logRequest(multiAgentServiceUrl + "/chat", body);
+                    aiMetrics.recordRequestSize("chat", body);
+                    
+                    return aiMetrics.timed("chat", retries, webClient.post()
+                            .uri(multiAgentServiceUrl + "/chat")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(body)
+                            .retrieve()
+                            .bodyToMono(RESPONSE_TYPE)
+                            .transformDeferred(CircuitBreakerOperator.of(multiAgentCircuitBreaker))
+                            .transformDeferred(BulkheadOperator.of(chatBulkhead))
+                            .transform(attempt -> concurrencyLimiter.limit(attempt, userKey))
+                            .retryWhen(retrySpec(retries))
+                            .onErrorMap(AIService::isRejected, AIService::toUnavailable));
+                });
+        
+        return call
+                .doOnNext(responseBody -> aiMetrics.recordResponseSize("chat", responseBody.get("reply")))
+                .map(responseBody -> {
+                    // 解析响应
+                    if (responseBody.get("reply") != null) {
+                        return AIReply.of((String) responseBody.get("reply"));
+                    } else {
+                        logger.warn("AI服务返回了无效的响应格式: {}",
+                                StringUtils.abbreviate(String.valueOf(responseBody), logMaxPayloadChars));
+                        return AIReply.fallback("抱歉，AI服务暂时无法回复，请稍后再试。");
+                    }
+                })
+                .defaultIfEmpty(AIReply.fallback("抱歉，AI服务暂时不可用，请稍后再试。"))
+                .onErrorResume(e -> !(e instanceof AIServiceUnavailableException), e -> {
+                    logger.error("连接AI服务时出现错误: {}", e.getMessage(), e);
+                    return Mono.just(AIReply.fallback("抱歉，连接AI服务时出现错误，请稍后再试。错误详情: " + e.getMessage()));
+                });
+    }
+    
+    /**
+     * 以流式方式获取多智能体系统的回复
+     * 上游服务通过Server-Sent Events逐段返回内容，收到"[DONE]"或连接关闭时结束。
+     * 上游没有流式接口时改用非流式接口，完整回复作为单个片段返回；该情况会被记住，直到服务重启
+     * @param history 对话历史
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return AI回复片段流
+     * @throws AIServiceUnavailableException 熔断器打开或并发已满
+     */
+    public Flux<String> streamMultiAgentReply(List<ChatResponse.MessageDto> history, String message,
+                                              boolean useRAG) {
+        return streamMultiAgentReplyResult(history, message, useRAG).map(AIReply::getContent);
+    }
+    
+    /**
+     * 以流式方式获取多智能体系统的回复，改用非流式接口且调用失败时，返回的单个片段标记为兜底回复
+     * @param history 对话历史
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return AI回复片段流
+     * @throws AIServiceUnavailableException 熔断器打开或并发已满
+     */
+    public Flux<AIReply> streamMultiAgentReplyResult(List<ChatResponse.MessageDto> history, String message,
+                                                     boolean useRAG) {
+        // 准备请求体
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("history", history);
+        requestBody.put("message", message);
+        requestBody.put("stream", true);
+        requestBody.put("useRAG", useRAG);
+        
+        if (streamUnsupported) {
+            return getMultiAgentReplyResult(history, message, useRAG).flux();
         }
         
-        return "抱歉，AI服务暂时不可用，请稍后再试。";
+        String userKey = currentUserKey();
+        
+        Flux<AIReply> reply = withKnowledgeContext(requestBody, useRAG, message).flatMapMany(body -> {
+            aiMetrics.recordRequestSize("chat_stream", body);
+            logRequest(multiAgentServiceUrl + "/chat/stream", body);
+            
+            Flux<String> stream = webClient.post()
+                    .uri(multiAgentServiceUrl + "/chat/stream")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                    .filter(event -> event.data() != null)
+                    .map(ServerSentEvent::data)
+                    .takeWhile(data -> !"[DONE]".equals(data))
+                    .transformDeferred(CircuitBreakerOperator.of(multiAgentStreamCircuitBreaker))
+                    .transformDeferred(BulkheadOperator.of(chatBulkhead))
+                    .transform(attempt -> concurrencyLimiter.limit(attempt, userKey))
+                    .onErrorMap(AIService::isRejected, AIService::toUnavailable);
+            
+            return aiMetrics.timedStream("chat_stream", stream).map(AIReply::of);
+        });
+        
+        // 回退调用在请求线程上组装，以便读取当前用户；只有上游不支持流式接口时才会订阅
+        Mono<AIReply> fallback = getMultiAgentReplyResult(history, message, useRAG);
+        return reply.onErrorResume(AIService::isStreamUnsupported, e -> {
+            streamUnsupported = true;
+            logger.warn("多智能体服务不支持流式接口，改用非流式接口: {}", e.getMessage());
+            return fallback.flux();
+        });
     }
     
     /**
@@ -108,85 +269,227 @@ public class AIService {
     public LessonPlan generateLessonPlan(String grade, String module, String knowledgePoint, 
                                          Integer duration, List<String> preferences, 
                                          String customRequirements, boolean useRAG) {
-        try {
-            // 准备请求头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            // 准备请求体
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("grade", grade);
-            requestBody.put("module", module);
-            requestBody.put("knowledgePoint", knowledgePoint);
-            requestBody.put("duration", duration);
-            requestBody.put("preferences", preferences);
-            requestBody.put("customRequirements", customRequirements);
-            requestBody.put("useRAG", useRAG);
-            
-            // 创建请求实体
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            // 发送请求
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    singleAgentServiceUrl + "/generate-lesson-plan",
-                    request,
-                    Map.class
-            );
-            
-            // 解析响应
-            Map<String, Object> responseBody = response.getBody();
-            if (responseBody != null) {
-                LessonPlan lessonPlan = new LessonPlan();
-                
-                // 设置基本信息
-                lessonPlan.setTitle((String) responseBody.get("title"));
-                lessonPlan.setGrade(grade);
-                lessonPlan.setModule(module);
-                lessonPlan.setKnowledgePoint(knowledgePoint);
-                lessonPlan.setDuration(duration);
-                
-                // 设置教学目标
-                if (responseBody.containsKey("objectives")) {
-                    lessonPlan.setObjectivesList((List<Map<String, String>>) responseBody.get("objectives"));
-                }
-                
-                // 设置教学重点
-                if (responseBody.containsKey("keyPoints")) {
-                    lessonPlan.setKeyPointsList((List<String>) responseBody.get("keyPoints"));
-                }
-                
-                // 设置教学难点
-                if (responseBody.containsKey("difficultPoints")) {
-                    lessonPlan.setDifficultPointsList((List<String>) responseBody.get("difficultPoints"));
-                }
-                
-                // 设置教学资源
-                if (responseBody.containsKey("resources")) {
-                    lessonPlan.setResourcesList((List<Map<String, String>>) responseBody.get("resources"));
-                }
-                
-                // 设置教学过程
-                if (responseBody.containsKey("teachingProcess")) {
-                    lessonPlan.setTeachingProcessList((List<Map<String, Object>>) responseBody.get("teachingProcess"));
-                }
-                
-                // 设置教学评价
-                if (responseBody.containsKey("evaluation")) {
-                    lessonPlan.setEvaluation((String) responseBody.get("evaluation"));
-                }
-                
-                // 设置拓展建议
-                if (responseBody.containsKey("extension")) {
-                    lessonPlan.setExtension((String) responseBody.get("extension"));
-                }
-                
-                return lessonPlan;
-            } else {
-                throw new RuntimeException("AI服务返回空响应");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("生成教案失败：" + e.getMessage());
+        return generateLessonPlanAsync(grade, module, knowledgePoint, duration, preferences,
+                customRequirements, useRAG).block();
+    }
+    
+    /**
+     * 以非阻塞方式生成教案
+     * @param grade 年级
+     * @param module 模块
+     * @param knowledgePoint 知识点
+     * @param duration 课时
+     * @param preferences 教学偏好
+     * @param customRequirements 自定义要求
+     * @param useRAG 是否使用知识库增强
+     * @return 生成的教案
+     * @throws AIServiceUnavailableException 熔断器打开或并发已满
+     */
+    public Mono<LessonPlan> generateLessonPlanAsync(String grade, String module, String knowledgePoint,
+                                                    Integer duration, List<String> preferences,
+                                                    String customRequirements, boolean useRAG) {
+        // 准备请求体
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("grade", grade);
+        requestBody.put("module", module);
+        requestBody.put("knowledgePoint", knowledgePoint);
+        requestBody.put("duration", duration);
+        requestBody.put("preferences", preferences);
+        requestBody.put("customRequirements", customRequirements);
+        requestBody.put("useRAG", useRAG);
+        
+        String userKey = currentUserKey();
+        String ragQuery = String.join(" ", grade, module, knowledgePoint);
+        
+        AtomicInteger retries = new AtomicInteger();
+        Mono<Map<String, Object>> call = withKnowledgeContext(requestBody, useRAG, ragQuery)
+                .flatMap(body -> {
+                    aiMetrics.recordRequestSize("lesson_plan", body);
+                    logRequest(singleAgentServiceUrl + "/generate-lesson-plan", body);
+                    
+                    return aiMetrics.timed("lesson_plan", retries, webClient.post()
+                            .uri(singleAgentServiceUrl + "/generate-lesson-plan")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(body)
+                            .retrieve()
+                            .bodyToMono(RESPONSE_TYPE)
+                            .transformDeferred(CircuitBreakerOperator.of(singleAgentCircuitBreaker))
+                            .transformDeferred(BulkheadOperator.of(lessonPlanBulkhead))
+                            .transform(attempt -> concurrencyLimiter.limit(attempt, userKey))
+                            .retryWhen(retrySpec(retries))
+                            .onErrorMap(AIService::isRejected, AIService::toUnavailable));
+                });
+        
+        return call
+                .doOnNext(responseBody -> aiMetrics.recordResponseSize("lesson_plan", responseBody))
+                .map(responseBody -> toLessonPlan(responseBody, grade, module, knowledgePoint, duration))
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("AI服务返回空响应")))
+                .onErrorMap(e -> !(e instanceof AIServiceUnavailableException), e -> {
+                    logger.error("生成教案失败: {}", e.getMessage(), e);
+                    return new RuntimeException("生成教案失败：" + e.getMessage(), e);
+                });
+    }
+    
+    /**
+     * 将AI服务响应转换为教案实体
+     * @param responseBody 响应体
+     * @param grade 年级
+     * @param module 模块
+     * @param knowledgePoint 知识点
+     * @param duration 课时
+     * @return 教案
+     */
+    @SuppressWarnings("unchecked")
+    private LessonPlan toLessonPlan(Map<String, Object> responseBody, String grade, String module,
+                                    String knowledgePoint, Integer duration) {
+        LessonPlan lessonPlan = new LessonPlan();
+        
+        // 设置基本信息
+        lessonPlan.setTitle((String) responseBody.get("title"));
+        lessonPlan.setGrade(grade);
+        lessonPlan.setModule(module);
+        lessonPlan.setKnowledgePoint(knowledgePoint);
+        lessonPlan.setDuration(duration);
+        
+        // 设置教学目标
+        if (responseBody.containsKey("objectives")) {
+            lessonPlan.setObjectivesList((List<Map<String, String>>) responseBody.get("objectives"));
+        }
+        
+        // 设置教学重点
+        if (responseBody.containsKey("keyPoints")) {
+            lessonPlan.setKeyPointsList((List<String>) responseBody.get("keyPoints"));
+        }
+        
+        // 设置教学难点
+        if (responseBody.containsKey("difficultPoints")) {
+            lessonPlan.setDifficultPointsList((List<String>) responseBody.get("difficultPoints"));
+        }
+        
+        // 设置教学资源
+        if (responseBody.containsKey("resources")) {
+            lessonPlan.setResourcesList((List<Map<String, String>>) responseBody.get("resources"));
+        }
+        
+        // 设置教学过程
+        if (responseBody.containsKey("teachingProcess")) {
+            lessonPlan.setTeachingProcessList((List<Map<String, Object>>) responseBody.get("teachingProcess"));
+        }
+        
+        // 设置教学评价
+        if (responseBody.containsKey("evaluation")) {
+            lessonPlan.setEvaluation((String) responseBody.get("evaluation"));
+        }
+        
+        // 设置拓展建议
+        if (responseBody.containsKey("extension")) {
+            lessonPlan.setExtension((String) responseBody.get("extension"));
+        }
+        
+        return lessonPlan;
+    }
+    
+    /**
+     * 在请求体中加入知识库检索结果（ragContext），AI服务（ai_deploy的/chat和/generate-lesson-plan）收到该字段后
+     * 直接使用其中的文本块，不再检索本地FAISS知识库；没有检索结果时发送空列表，AI服务在没有知识库上下文的情况下回答。
+     * 检索包含数据库查询和向量化调用，在boundedElastic线程上执行；后端检索未启用时请求体保持不变，由AI服务自行检索
+     * @param requestBody 请求体
+     * @param useRAG 是否使用知识库增强
+     * @param query 检索文本
+     * @return 请求体
+     */
+    private Mono<Map<String, Object>> withKnowledgeContext(Map<String, Object> requestBody, boolean useRAG,
+                                                           String query) {
+        if (!useRAG || !knowledgeRetrievalService.isEnabled()) {
+            return Mono.just(requestBody);
         }
+        return Mono.fromCallable(() -> knowledgeRetrievalService.retrieve(query))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(chunks -> {
+                    requestBody.put("ragContext", chunks);
+                    return requestBody;
+                });
+    }
+    
+    /**
+     * 按采样比例记录AI服务请求，请求体包含完整的对话历史，只在采样命中时才转换为字符串并截断
+     * @param url 请求地址
+     * @param requestBody 请求体
+     */
+    private void logRequest(String url, Map<String, Object> requestBody) {
+        if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate && logger.isInfoEnabled()) {
+            logger.info("发送请求到AI服务: {} 请求体: {}", url,
+                    StringUtils.abbreviate(String.valueOf(requestBody), logMaxPayloadChars));
+        }
+    }
+    
+    /**
+     * 构建指数退避重试策略，仅对连接异常、超时、429和5xx响应重试
+     * @param retries 重试计数，每次重试前加一
+     * @return 重试策略
+     */
+    private Retry retrySpec(AtomicInteger retries) {
+        return Retry.backoff(Math.max(0, maxRetries - 1), Duration.ofMillis(retryBackoffMs))
+                .filter(AIService::isUpstreamFailure)
+                .doBeforeRetry(signal -> retries.incrementAndGet())
+                .doBeforeRetry(signal -> logger.warn("连接AI服务时出现错误 (尝试 {}/{}): {}",
+                        signal.totalRetries() + 1, maxRetries, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+    
+    /**
+     * 判断异常是否为上游服务故障，上游故障才值得重试并计入熔断器的失败率
+     * @param e 异常
+     * @return 是否为上游故障
+     */
+    public static boolean isUpstreamFailure(Throwable e) {
+        if (e instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) e).getRawStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+    
+    /**
+     * 判断异常是否表示上游没有流式接口
+     * @param e 异常
+     * @return 是否为404或405响应
+     */
+    private static boolean isStreamUnsupported(Throwable e) {
+        if (e instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) e).getRawStatusCode();
+            return status == 404 || status == 405;
+        }
+        return false;
+    }
+    
+    /**
+     * 判断调用是否被熔断器或隔离舱拒绝
+     * @param e 异常
+     * @return 是否被拒绝
+     */
+    private static boolean isRejected(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+    }
+    
+    /**
+     * 将拒绝转换为明确的服务不可用异常
+     * @param e 熔断器或隔离舱的拒绝异常
+     * @return 服务不可用异常
+     */
+    private static Throwable toUnavailable(Throwable e) {
+        if (e instanceof CallNotPermittedException) {
+            return new AIServiceUnavailableException("AI服务暂时不可用，已暂停调用，请稍后再试", e);
+        }
+        return new AIServiceUnavailableException("AI服务繁忙，请稍后再试", e);
+    }
+    
+    /**
+     * 获取当前用户标识，用于并发限制器的公平排队；在组装调用链时读取，此时仍在请求线程上
+     * @return 用户名，未认证时为anonymous
+     */
+    private static String currentUserKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.aiedu.platform.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * AI服务暂时不可用异常，熔断器打开或并发已满时快速失败，不再调用上游服务
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AIServiceUnavailableException extends RuntimeException {
+    public AIServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,257 @@
+package com.aiedu.platform.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AI上游调用的自适应并发限制器（AIMD）
+ * 调用成功且延迟正常时并发上限加一，出现429、5xx、超时或延迟超过阈值时按比例收缩，
+ * 使在途调用数跟随上游的实际承载能力；超出上限的调用进入有界等待队列，
+ * 队列按用户轮转出队，单个用户的大量请求不会挤占其他用户。
+ * 限制器位于对话和教案生成的隔离舱之外，排队中的调用不占用隔离舱名额
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final long latencyThresholdNanos;
+
+    private final int maxQueueSize;
+
+    private final Duration maxWait;
+
+    private double limit;
+
+    private int inFlight;
+
+    private int waiting;
+
+    // 每个用户的等待队列，以及有等待调用的用户的轮转顺序
+    private final Map<String, Deque<Waiter>> waitersByUser = new HashMap<>();
+
+    private final Deque<String> userRotation = new ArrayDeque<>();
+
+    public AdaptiveConcurrencyLimiter(@Value("${ai.limiter.initial-limit:10}") int initialLimit,
+                                      @Value("${ai.limiter.min-limit:1}") int minLimit,
+                                      @Value("${ai.limiter.max-limit:28}") int maxLimit,
+                                      @Value("${ai.limiter.backoff-ratio:0.9}") double backoffRatio,
+                                      @Value("${ai.limiter.latency-threshold-ms:30000}") long latencyThresholdMs,
+                                      @Value("${ai.limiter.max-queue-size:56}") int maxQueueSize,
+                                      @Value("${ai.limiter.max-wait-ms:30000}") long maxWaitMs) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = Duration.ofMillis(latencyThresholdMs).toNanos();
+        this.maxQueueSize = maxQueueSize;
+        this.maxWait = Duration.ofMillis(maxWaitMs);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 在并发限制下执行调用，每次订阅（包括重试）都会重新获取许可
+     * @param source 上游调用
+     * @param userKey 用户标识，用于公平排队
+     * @return 受限的调用
+     */
+    public <T> Mono<T> limit(Mono<T> source, String userKey) {
+        return acquire(userKey).flatMap(permit -> source
+                .doOnSuccess(value -> permit.release(Outcome.SUCCESS))
+                .doOnError(e -> permit.release(AIService.isUpstreamFailure(e) ? Outcome.DROPPED : Outcome.IGNORED))
+                .doOnCancel(() -> permit.release(Outcome.IGNORED)));
+    }
+
+    /**
+     * 在并发限制下执行流式调用，流持续时间不代表上游延迟，因此只有上游故障会调整并发上限
+     * @param source 上游流式调用
+     * @param userKey 用户标识，用于公平排队
+     * @return 受限的流式调用
+     */
+    public <T> Flux<T> limit(Flux<T> source, String userKey) {
+        return acquire(userKey).flatMapMany(permit -> source
+                .doOnComplete(() -> permit.release(Outcome.IGNORED))
+                .doOnError(e -> permit.release(AIService.isUpstreamFailure(e) ? Outcome.DROPPED : Outcome.IGNORED))
+                .doOnCancel(() -> permit.release(Outcome.IGNORED)));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * 获取许可，许可在任何路径上都由等待者记录：订阅被取消时如果许可已经分配但未被调用方接收，则立即归还，
+     * 不依赖下游操作符在取消后丢弃的值。等待超时由限制器自己计时，超时与分配许可在同一把锁下判定
+     * @param userKey 用户标识
+     * @return 许可
+     */
+    private Mono<Permit> acquire(String userKey) {
+        return Mono.<Permit>create(sink -> {
+            Waiter waiter = new Waiter(sink, userKey);
+            boolean queued = false;
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    waiter.permit = new Permit();
+                } else if (waiting < maxQueueSize) {
+                    enqueue(waiter);
+                    queued = true;
+                }
+            }
+
+            sink.onCancel(() -> cancel(waiter));
+            if (waiter.permit != null) {
+                sink.success(waiter.permit);
+            } else if (queued) {
+                Disposable timer = Schedulers.parallel().schedule(() -> expire(waiter),
+                        maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                sink.onDispose(timer);
+            } else {
+                sink.error(new AIServiceUnavailableException("AI服务繁忙，等待队列已满，请稍后再试", null));
+            }
+        }).doOnDiscard(Permit.class, permit -> permit.release(Outcome.IGNORED));
+    }
+
+    private void enqueue(Waiter waiter) {
+        Deque<Waiter> queue = waitersByUser.get(waiter.userKey);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            waitersByUser.put(waiter.userKey, queue);
+            userRotation.addLast(waiter.userKey);
+        }
+        queue.addLast(waiter);
+        waiting++;
+    }
+
+    /**
+     * 取消等待；如果许可已经分配给该等待者但尚未交付，则归还许可
+     * @param waiter 等待者
+     */
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.permit == null) {
+                dequeue(waiter);
+                return;
+            }
+        }
+        waiter.permit.release(Outcome.IGNORED);
+    }
+
+    /**
+     * 等待超时；许可已经分配给该等待者时不再超时
+     * @param waiter 等待者
+     */
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.permit != null || !dequeue(waiter)) {
+                return;
+            }
+        }
+        waiter.sink.error(new AIServiceUnavailableException("AI服务繁忙，等待超时，请稍后再试", null));
+    }
+
+    private boolean dequeue(Waiter waiter) {
+        Deque<Waiter> queue = waitersByUser.get(waiter.userKey);
+        if (queue == null || !queue.remove(waiter)) {
+            return false;
+        }
+        waiting--;
+        if (queue.isEmpty()) {
+            waitersByUser.remove(waiter.userKey);
+            userRotation.remove(waiter.userKey);
+        }
+        return true;
+    }
+
+    private void release(Outcome outcome, long latencyNanos) {
+        synchronized (this) {
+            inFlight--;
+            if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && latencyNanos > latencyThresholdNanos)) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (outcome == Outcome.SUCCESS && inFlight * 2 >= limit) {
+                // 只有在途调用接近上限时才增加，避免空闲时上限无限增长
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * 按用户轮转把空出的许可分配给等待者，许可在锁外交付
+     */
+    private void drain() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                if (inFlight >= (int) limit || userRotation.isEmpty()) {
+                    return;
+                }
+                String userKey = userRotation.pollFirst();
+                Deque<Waiter> queue = waitersByUser.get(userKey);
+                next = queue.pollFirst();
+                if (queue.isEmpty()) {
+                    waitersByUser.remove(userKey);
+                } else {
+                    userRotation.addLast(userKey);
+                }
+                waiting--;
+                inFlight++;
+                next.permit = new Permit();
+            }
+            next.sink.success(next.permit);
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS, DROPPED, IGNORED
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final String userKey;
+        private Permit permit;
+
+        private Waiter(MonoSink<Permit> sink, String userKey) {
+            this.sink = sink;
+            this.userKey = userKey;
+        }
+    }
+
+    /**
+     * 并发许可，只会归还一次
+     */
+    private final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(outcome, System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
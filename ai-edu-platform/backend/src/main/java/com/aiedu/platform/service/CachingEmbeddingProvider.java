@@ -0,0 +1,287 @@
+package com.aiedu.platform.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带缓存的向量化提供者，后端所有向量化调用（知识库导入、检索查询、对话语义缓存）都经过此类
+ * 以模型名和规范化文本的SHA-256为键，先查内存缓存，再查embedding_cache表，只有都未命中的文本才调用上游向量化服务。
+ * 同一批次中重复的文本只向量化一次；持久缓存读写失败时只记录日志，不影响向量化结果。
+ * 持久缓存中的行记录最近使用时间，超过retention-days未使用的行定期删除，避免检索查询的向量使表无限增长
+ */
+@Primary
+@Component
+public class CachingEmbeddingProvider implements EmbeddingProvider {
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingProvider.class);
+
+    private static final String LOOKUP_SQL =
+            "select content_hash, embedding::text as embedding from embedding_cache "
+                    + "where embedding_model = :model and content_hash in (:hashes)";
+
+    private static final String INSERT_SQL =
+            "insert into embedding_cache (embedding_model, content_hash, embedding) "
+                    + "values (:model, :hash, cast(:embedding as vector)) "
+                    + "on conflict (embedding_model, content_hash) do nothing";
+
+    // 最近使用时间只精确到天，避免每次命中都写一次数据库
+    private static final String TOUCH_SQL =
+            "update embedding_cache set last_used_at = now() "
+                    + "where embedding_model = :model and content_hash in (:hashes) "
+                    + "and last_used_at < now() - interval '1 day'";
+
+    private static final String PURGE_SQL =
+            "delete from embedding_cache where last_used_at < now() - make_interval(days => :retentionDays)";
+
+    @Autowired
+    private OpenAIEmbeddingProvider delegate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rag.embedding.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.embedding.cache.max-size:5000}")
+    private long maxSize;
+
+    @Value("${rag.embedding.cache.persistent:true}")
+    private boolean persistent;
+
+    @Value("${rag.embedding.cache.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${rag.embedding.cache.purge-interval-minutes:60}")
+    private long purgeIntervalMinutes;
+
+    private final AtomicLong lastPurgeMillis = new AtomicLong(System.currentTimeMillis());
+
+    // 模型名和文本哈希到向量的缓存，缓存的向量数组与调用方共享，调用方不应修改
+    private Cache<String, float[]> embeddings;
+
+    private Counter memoryHits;
+    private Counter databaseHits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        this.embeddings = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.memoryHits = lookupCounter("memory");
+        this.databaseHits = lookupCounter("database");
+        this.misses = lookupCounter("miss");
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder("rag.embedding.cache")
+                .description("向量缓存查找次数（按文本计）")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getModel() {
+        return delegate.getModel();
+    }
+
+    @Override
+    public int getDimensions() {
+        return delegate.getDimensions();
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        if (!enabled) {
+            return delegate.embedAll(texts);
+        }
+
+        String model = delegate.getModel();
+        List<String> hashes = new ArrayList<>(texts.size());
+        Map<String, float[]> found = new HashMap<>();
+        // 未命中内存缓存的文本，按哈希去重并保留第一次出现的原文
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (String text : texts) {
+            String hash = contentHash(text);
+            hashes.add(hash);
+            if (found.containsKey(hash) || pending.containsKey(hash)) {
+                continue;
+            }
+            float[] cached = embeddings.getIfPresent(model + ':' + hash);
+            if (cached != null) {
+                found.put(hash, cached);
+                memoryHits.increment();
+            } else {
+                pending.put(hash, text);
+            }
+        }
+
+        if (!pending.isEmpty() && persistent) {
+            Map<String, float[]> stored = load(model, pending.keySet());
+            for (Map.Entry<String, float[]> entry : stored.entrySet()) {
+                found.put(entry.getKey(), entry.getValue());
+                embeddings.put(model + ':' + entry.getKey(), entry.getValue());
+                pending.remove(entry.getKey());
+            }
+            databaseHits.increment(stored.size());
+        }
+
+        if (!pending.isEmpty()) {
+            misses.increment(pending.size());
+            List<String> missingHashes = new ArrayList<>(pending.keySet());
+            List<float[]> computed = delegate.embedAll(new ArrayList<>(pending.values()));
+            for (int i = 0; i < missingHashes.size(); i++) {
+                found.put(missingHashes.get(i), computed.get(i));
+                embeddings.put(model + ':' + missingHashes.get(i), computed.get(i));
+            }
+            if (persistent) {
+                save(model, missingHashes, computed);
+            }
+        }
+
+        List<float[]> result = new ArrayList<>(texts.size());
+        for (String hash : hashes) {
+            result.add(found.get(hash));
+        }
+        return result;
+    }
+
+    /**
+     * 从embedding_cache表批量读取向量
+     * @param model 模型名
+     * @param hashes 文本哈希
+     * @return 哈希到向量的映射，读取失败时为空
+     */
+    private Map<String, float[]> load(String model, Collection<String> hashes) {
+        Map<String, float[]> stored = new HashMap<>();
+        try {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("model", model)
+                    .addValue("hashes", hashes);
+            jdbcTemplate.query(LOOKUP_SQL, params, rs -> {
+                float[] embedding = parseVectorLiteral(rs.getString("embedding"));
+                if (embedding.length == delegate.getDimensions()) {
+                    stored.put(rs.getString("content_hash"), embedding);
+                }
+            });
+        } catch (DataAccessException e) {
+            logger.warn("读取向量缓存失败，继续调用向量化服务: {}", e.getMessage());
+            return new HashMap<>();
+        }
+        if (!stored.isEmpty()) {
+            try {
+                jdbcTemplate.update(TOUCH_SQL, new MapSqlParameterSource()
+                        .addValue("model", model)
+                        .addValue("hashes", new ArrayList<>(stored.keySet())));
+            } catch (DataAccessException e) {
+                logger.warn("更新向量缓存使用时间失败: {}", e.getMessage());
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * 将新计算的向量写入embedding_cache表，已存在的行保持不变
+     * @param model 模型名
+     * @param hashes 文本哈希
+     * @param computed 与哈希顺序一致的向量
+     */
+    private void save(String model, List<String> hashes, List<float[]> computed) {
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[hashes.size()];
+        for (int i = 0; i < hashes.size(); i++) {
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("model", model)
+                    .addValue("hash", hashes.get(i))
+                    .addValue("embedding", KnowledgeRetrievalService.toVectorLiteral(computed.get(i)));
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+            purgeUnusedIfDue();
+        } catch (DataAccessException e) {
+            logger.warn("写入向量缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每隔purge-interval-minutes删除一次超过retention-days未使用的缓存，由写入缓存的线程顺带执行
+     */
+    private void purgeUnusedIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastPurgeMillis.get();
+        if (now - last >= Duration.ofMinutes(purgeIntervalMinutes).toMillis()
+                && lastPurgeMillis.compareAndSet(last, now)) {
+            int purged = jdbcTemplate.update(PURGE_SQL,
+                    new MapSqlParameterSource("retentionDays", retentionDays));
+            logger.debug("已清理{}条长期未使用的向量缓存", purged);
+        }
+    }
+
+    /**
+     * 计算规范化文本的SHA-256：Unicode NFC规范化、合并连续空白并去除首尾空白，
+     * 使仅有空白或编码形式差异的文本共享同一个向量
+     * @param text 文本
+     * @return 十六进制哈希
+     */
+    static String contentHash(String text) {
+        String normalized = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFC)
+                .trim()
+                .replaceAll("\\s+", " ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(normalized.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 解析pgvector的文本格式，例如[0.1,0.2,0.3]
+     * @param literal 文本格式
+     * @return 向量
+     */
+    private static float[] parseVectorLiteral(String literal) {
+        String body = literal.trim();
+        body = body.substring(1, body.length() - 1);
+        if (body.isEmpty()) {
+            return new float[0];
+        }
+        String[] parts = body.split(",");
+        float[] embedding = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            embedding[i] = Float.parseFloat(parts[i]);
+        }
+        return embedding;
+    }
+}
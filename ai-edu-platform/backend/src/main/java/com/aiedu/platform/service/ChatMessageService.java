@@ -0,0 +1,71 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.model.Conversation;
+import com.aiedu.platform.model.Message;
+import com.aiedu.platform.repository.ConversationRepository;
+import com.aiedu.platform.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话消息持久化服务
+ * 一轮对话的用户消息和AI回复在同一个事务中批量写入，对话的更新时间只更新一次
+ */
+@Service
+public class ChatMessageService {
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ConversationHistoryService historyService;
+
+    /**
+     * 保存一轮对话
+     * 消息使用预分配的序列ID，两条INSERT在提交时作为一个JDBC批次发送，对话通过单条UPDATE语句更新。
+     * 分配消息序号前先对对话行加写锁并重新读取计数，同一对话的并发请求依次分配序号，不会得到相同的序号或覆盖彼此的计数
+     * @param conversation 对话，请求开始时读取，计数和摘要会按加锁后读取的状态更新
+     * @param userMessage 用户消息
+     * @param aiMessage AI回复，AI调用失败时可为null，此时只保存用户消息
+     */
+    @Transactional
+    public void saveTurn(Conversation conversation, Message userMessage, Message aiMessage) {
+        Conversation current = conversationRepository.findByIdForUpdate(conversation.getId())
+                .orElseThrow(() -> new RuntimeException("对话不存在"));
+        conversation.setMessageCount(current.getMessageCount());
+        // 本轮的摘要在加锁前计算，其他请求已把摘要推进得更远时采用数据库中的摘要
+        int summarizedUpTo = conversation.getSummarizedUpTo() == null ? 0 : conversation.getSummarizedUpTo();
+        if (current.getSummarizedUpTo() != null && current.getSummarizedUpTo() >= summarizedUpTo) {
+            conversation.setHistorySummary(current.getHistorySummary());
+            conversation.setSummarizedUpTo(current.getSummarizedUpTo());
+        }
+
+        List<Message> messages = new ArrayList<>(2);
+        messages.add(userMessage);
+        if (aiMessage != null) {
+            messages.add(aiMessage);
+        }
+
+        for (Message message : messages) {
+            message.setConversation(conversation);
+            historyService.assignMessageOrder(conversation, message);
+        }
+        messageRepository.saveAll(messages);
+
+        conversation.setUpdatedAt(LocalDateTime.now());
+        conversationRepository.touch(
+                conversation.getId(),
+                conversation.getUpdatedAt(),
+                conversation.getMessageCount(),
+                conversation.getHistorySummary(),
+                conversation.getSummarizedUpTo()
+        );
+    }
+}
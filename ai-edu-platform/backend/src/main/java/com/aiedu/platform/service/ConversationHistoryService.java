@@ -0,0 +1,282 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.model.Conversation;
+import com.aiedu.platform.model.Message;
+import com.aiedu.platform.payload.response.ChatResponse;
+import com.aiedu.platform.repository.ConversationRepository;
+import com.aiedu.platform.repository.MessageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 对话历史服务，为每轮对话构建固定大小的历史窗口
+ * 只读取最近的若干条消息并按token预算裁剪，滚出窗口的消息可并入对话的滚动摘要
+ */
+@Service
+public class ConversationHistoryService {
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Value("${chat.history.max-messages:20}")
+    private int maxMessages;
+
+    @Value("${chat.history.max-tokens:4000}")
+    private int maxTokens;
+
+    @Value("${chat.history.summary.enabled:true}")
+    private boolean summaryEnabled;
+
+    @Value("${chat.history.summary.max-chars:1500}")
+    private int summaryMaxChars;
+
+    @Value("${chat.history.summary.snippet-chars:120}")
+    private int summarySnippetChars;
+
+    private final DistributionSummary historyMessages;
+
+    private final DistributionSummary historyTokens;
+
+    public ConversationHistoryService(MeterRegistry meterRegistry) {
+        this.historyMessages = DistributionSummary.builder("chat.history.messages")
+                .description("每轮对话发送给AI服务的历史消息数")
+                .register(meterRegistry);
+        this.historyTokens = DistributionSummary.builder("chat.history.tokens")
+                .description("每轮对话历史窗口的估算token数")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 确保对话中的消息都有message_order，旧对话的消息按创建时间回填
+     * 旧数据在启动时已由MessageOrderInitializer回填，这里只在写入路径上兜底处理启动之后才出现的旧对话
+     * @param conversation 对话
+     */
+    @Transactional
+    public void ensureMessageOrder(Conversation conversation) {
+        if (conversation.getMessageCount() == null) {
+            messageRepository.backfillMessageOrder(conversation.getId());
+            conversation.setMessageCount((int) messageRepository.countByConversation(conversation));
+            conversationRepository.save(conversation);
+        }
+    }
+
+    /**
+     * 为新消息分配对话内的消息序号，并更新对话的消息计数
+     * @param conversation 对话
+     * @param message 新消息
+     */
+    @Transactional
+    public void assignMessageOrder(Conversation conversation, Message message) {
+        ensureMessageOrder(conversation);
+
+        int nextOrder = conversation.getMessageCount() + 1;
+        message.setMessageOrder(nextOrder);
+        conversation.setMessageCount(nextOrder);
+    }
+
+    /**
+     * 构建发送给AI服务的对话历史
+     * 只查询最近maxMessages条消息，再从最早的消息开始裁剪直到满足token预算
+     * @param conversation 对话
+     * @param pendingMessage 本轮尚未保存的用户消息，会作为最新一条加入历史，可为null
+     * @return 按时间升序排列的历史消息，启用摘要时第一条为早期对话摘要
+     */
+    @Transactional
+    public List<ChatResponse.MessageDto> buildHistory(Conversation conversation, Message pendingMessage) {
+        ensureMessageOrder(conversation);
+
+        int fetchSize = pendingMessage == null ? maxMessages : maxMessages - 1;
+        List<Message> recent = new ArrayList<>();
+        if (fetchSize > 0) {
+            recent.addAll(messageRepository.findByConversationOrderByMessageOrderDesc(
+                    conversation, PageRequest.of(0, fetchSize)));
+            Collections.reverse(recent);
+        }
+        if (pendingMessage != null) {
+            recent.add(pendingMessage);
+        }
+
+        Window window = trimToBudget(recent, maxTokens);
+        historyMessages.record(window.getMessages().size());
+        historyTokens.record(window.getTokens());
+
+        String summary = null;
+        if (summaryEnabled && !window.getMessages().isEmpty()) {
+            // 未保存的消息还没有序号，它的序号将是当前计数加一
+            Message first = window.getMessages().get(0);
+            Integer windowStartOrder = first.getMessageOrder() != null
+                    ? first.getMessageOrder() : conversation.getMessageCount() + 1;
+            updateSummary(conversation, windowStartOrder);
+            summary = conversation.getHistorySummary();
+        }
+
+        return toHistory(window.getMessages(), summary);
+    }
+
+    /**
+     * 按token预算从最早的消息开始裁剪，至少保留最新一条
+     * 不访问数据库，基准测试（benchmarks模块）直接调用
+     * @param recent 按时间升序排列的最近消息
+     * @param maxTokens token预算
+     * @return 历史窗口
+     */
+    public static Window trimToBudget(List<Message> recent, int maxTokens) {
+        int tokens = 0;
+        int start = recent.size();
+        while (start > 0) {
+            int messageTokens = estimateTokens(recent.get(start - 1).getContent());
+            if (start < recent.size() && tokens + messageTokens > maxTokens) {
+                break;
+            }
+            tokens += messageTokens;
+            start--;
+        }
+        return new Window(recent.subList(start, recent.size()), tokens);
+    }
+
+    /**
+     * 将历史窗口映射为发送给AI服务的消息
+     * @param window 历史窗口中的消息
+     * @param summary 早期对话摘要，不为空时作为第一条
+     * @return 按时间升序排列的历史消息
+     */
+    public static List<ChatResponse.MessageDto> toHistory(List<Message> window, String summary) {
+        List<ChatResponse.MessageDto> history = new ArrayList<>(window.size() + 1);
+        if (summary != null && !summary.isEmpty()) {
+            history.add(new ChatResponse.MessageDto(
+                    "system",
+                    "以下是较早对话的摘要：\n" + summary,
+                    null
+            ));
+        }
+
+        for (Message message : window) {
+            history.add(new ChatResponse.MessageDto(
+                    message.getSender(),
+                    message.getContent(),
+                    message.getCreatedAt()
+            ));
+        }
+
+        return history;
+    }
+
+    /**
+     * 将滚出窗口的消息以摘要片段追加到已有摘要之后，只保留最近的内容
+     * @param summary 已有摘要，可为null
+     * @param evicted 按时间升序排列的滚出窗口的消息
+     * @param snippetChars 每条消息的最大字符数
+     * @param maxChars 摘要的最大字符数
+     * @return 新的摘要
+     */
+    public static String appendSummary(String summary, List<Message> evicted, int snippetChars, int maxChars) {
+        StringBuilder builder = new StringBuilder();
+        if (summary != null) {
+            builder.append(summary);
+        }
+        for (Message message : evicted) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append("user".equals(message.getSender()) ? "学生: " : "AI: ")
+                    .append(abbreviate(message.getContent(), snippetChars));
+        }
+
+        // 只保留最近的摘要内容
+        if (builder.length() > maxChars) {
+            builder.delete(0, builder.length() - maxChars);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 将滚出历史窗口的消息并入对话摘要
+     * 每轮只有少量消息滚出窗口，因此每次只需读取上次摘要位置之后的增量
+     * @param conversation 对话
+     * @param windowStartOrder 当前窗口中最早消息的序号
+     */
+    private void updateSummary(Conversation conversation, Integer windowStartOrder) {
+        if (windowStartOrder == null) {
+            return;
+        }
+
+        int summarizedUpTo = conversation.getSummarizedUpTo() == null ? 0 : conversation.getSummarizedUpTo();
+        if (windowStartOrder - 1 <= summarizedUpTo) {
+            return;
+        }
+
+        // 增量最多读取一个窗口大小，更早的消息对摘要的贡献会被长度上限截掉
+        List<Message> evicted = new ArrayList<>(messageRepository.findByConversationAndOrderBetween(
+                conversation, summarizedUpTo, windowStartOrder, PageRequest.of(0, maxMessages)));
+        Collections.reverse(evicted);
+
+        conversation.setHistorySummary(appendSummary(conversation.getHistorySummary(), evicted,
+                summarySnippetChars, summaryMaxChars));
+        conversation.setSummarizedUpTo(windowStartOrder - 1);
+    }
+
+    /**
+     * 粗略估算文本的token数：中日韩字符按每字一个token，其他字符按每四个字符一个token
+     * @param content 文本
+     * @return 估算的token数
+     */
+    private static int estimateTokens(String content) {
+        if (content == null) {
+            return 0;
+        }
+        int wide = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) > 0x2E7F) {
+                wide++;
+            }
+        }
+        return wide + (content.length() - wide + 3) / 4;
+    }
+
+    /**
+     * 截断文本并去除换行
+     * @param content 文本
+     * @param maxChars 最大字符数
+     * @return 截断后的文本
+     */
+    private static String abbreviate(String content, int maxChars) {
+        if (content == null) {
+            return "";
+        }
+        String singleLine = content.replaceAll("\\s+", " ").trim();
+        return singleLine.length() <= maxChars ? singleLine : singleLine.substring(0, maxChars) + "…";
+    }
+
+    /**
+     * 历史窗口：按时间升序排列的消息及其估算的token数
+     */
+    public static final class Window {
+        private final List<Message> messages;
+        private final int tokens;
+
+        private Window(List<Message> messages, int tokens) {
+            this.messages = messages;
+            this.tokens = tokens;
+        }
+
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.aiedu.platform.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 文本向量化提供者，向量维度需与documents表的embedding列一致
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * 获取模型名称，同一文本在不同模型下的向量不可混用
+     * @return 模型名称
+     */
+    String getModel();
+
+    /**
+     * 获取向量维度
+     * @return 维度
+     */
+    int getDimensions();
+
+    /**
+     * 批量向量化，一次请求处理多段文本
+     * @param texts 文本列表
+     * @return 与输入顺序一致的向量列表
+     */
+    List<float[]> embedAll(List<String> texts);
+
+    /**
+     * 向量化单段文本
+     * @param text 文本
+     * @return 向量
+     */
+    default float[] embed(String text) {
+        return embedAll(Collections.singletonList(text)).get(0);
+    }
+}
@@ -0,0 +1,357 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.payload.response.KnowledgeUploadResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 知识库导入服务
+ * 上传的文件按页（PDF）或按缓冲区（文本）流式读取并增量分块，块按批次在线程池中向量化后批量写入documents表。
+ * 读取线程在进行中的批次达到上限时等待，使内存占用与文件大小无关；任一批次失败时删除本次导入已写入的数据
+ */
+@Service
+public class KnowledgeIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeIngestionService.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String INSERT_SQL =
+            "insert into documents (content, metadata, embedding) values (?, ?::jsonb, ?::vector)";
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private KnowledgeRetrievalService knowledgeRetrievalService;
+
+    @Autowired
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Autowired
+    private LessonPlanGenerationCache lessonPlanGenerationCache;
+
+    @Autowired
+    @Qualifier("knowledgeIngestionExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rag.ingestion.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${rag.ingestion.chunk-overlap:200}")
+    private int chunkOverlap;
+
+    @Value("${rag.ingestion.batch-size:64}")
+    private int batchSize;
+
+    @Value("${rag.ingestion.max-in-flight-batches:8}")
+    private int maxInFlightBatches;
+
+    /**
+     * 判断文件格式是否支持
+     * @param filename 文件名
+     * @return 是否支持
+     */
+    public static boolean isSupported(String filename) {
+        String lower = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".pdf") || lower.endsWith(".txt") || lower.endsWith(".md");
+    }
+
+    /**
+     * 导入知识库文件
+     * @param filename 文件名，作为文档来源写入元数据
+     * @param in 文件内容
+     * @param uploaderId 上传者ID
+     * @param attributes 写入每个文本块元数据的附加属性（如grade、subject），用于检索时过滤，空值被忽略
+     * @return 导入结果
+     */
+    public KnowledgeUploadResponse ingest(String filename, InputStream in, Long uploaderId,
+                                          Map<String, String> attributes) {
+        if (!isSupported(filename)) {
+            throw new RuntimeException("不支持的文件格式");
+        }
+
+        long start = System.nanoTime();
+        String ingestionId = UUID.randomUUID().toString();
+        Pipeline pipeline = new Pipeline(filename, uploaderId, ingestionId, attributes);
+        Integer pages = null;
+        try {
+            if (filename.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+                pages = readPdf(in, pipeline.chunker);
+            } else {
+                readText(in, pipeline.chunker);
+            }
+            pipeline.finish();
+        } catch (IOException | RuntimeException e) {
+            pipeline.abort();
+            deleteIngested(ingestionId);
+            recordDuration("error", start);
+            logger.warn("知识库文件导入失败: source={} error={}", filename, e.getMessage());
+            if (e instanceof IOException) {
+                throw new RuntimeException("读取文件失败: " + e.getMessage(), e);
+            }
+            throw (RuntimeException) e;
+        }
+
+        // 知识库内容变化后，检索结果以及知识库增强的回答和教案缓存都已过时
+        knowledgeRetrievalService.invalidateAll();
+        semanticAnswerCache.invalidateKnowledgeAnswers();
+        lessonPlanGenerationCache.invalidateKnowledgePlans();
+
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        recordDuration("success", start);
+        DistributionSummary.builder("rag.ingestion.chunks")
+                .description("每次导入写入的文本块数")
+                .register(meterRegistry)
+                .record(pipeline.inserted.get());
+        logger.info("知识库文件导入完成: source={} chunks={} pages={} elapsedMs={}",
+                filename, pipeline.inserted.get(), pages, elapsedMs);
+
+        return new KnowledgeUploadResponse("文件 " + filename + " 已成功处理", filename,
+                pipeline.inserted.get(), pages, elapsedMs);
+    }
+
+    /**
+     * 逐页提取PDF文本，解析时使用临时文件而不是把整个文件读入内存
+     * @param in 文件内容
+     * @param chunker 分块器
+     * @return 页数
+     */
+    private int readPdf(InputStream in, TextChunker chunker) throws IOException {
+        try (PDDocument document = PDDocument.load(in, MemoryUsageSetting.setupTempFileOnly())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            int pages = document.getNumberOfPages();
+            for (int page = 1; page <= pages; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                chunker.append(stripper.getText(document), page);
+            }
+            chunker.finish();
+            return pages;
+        }
+    }
+
+    /**
+     * 按UTF-8分段读取文本文件
+     * @param in 文件内容
+     * @param chunker 分块器
+     */
+    private void readText(InputStream in, TextChunker chunker) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                chunker.append(new String(buffer, 0, read), 1);
+            }
+            chunker.finish();
+        }
+    }
+
+    /**
+     * 删除某次导入写入的文档
+     * @param ingestionId 导入ID
+     */
+    private void deleteIngested(String ingestionId) {
+        try {
+            jdbcTemplate.update("delete from documents where metadata->>'ingestion_id' = ?", ingestionId);
+        } catch (DataAccessException e) {
+            logger.error("清理失败导入的文档时出错: ingestionId={}", ingestionId, e);
+        }
+    }
+
+    private void recordDuration(String outcome, long startNanos) {
+        Timer.builder("rag.ingestion")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * 单次导入的处理流水线：收集分块结果，凑满一批后提交到线程池向量化并写入
+     */
+    private class Pipeline {
+        final TextChunker chunker;
+        final AtomicInteger inserted = new AtomicInteger();
+
+        private final String source;
+        private final Long uploaderId;
+        private final String ingestionId;
+        private final Map<String, String> attributes;
+        private final Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        private final List<Future<?>> futures = new ArrayList<>();
+        private List<String> contents = new ArrayList<>(batchSize);
+        private List<String> metadata = new ArrayList<>(batchSize);
+        private int chunkIndex;
+        private volatile boolean aborted;
+
+        Pipeline(String source, Long uploaderId, String ingestionId, Map<String, String> attributes) {
+            this.source = source;
+            this.uploaderId = uploaderId;
+            this.ingestionId = ingestionId;
+            this.attributes = attributes;
+            this.chunker = new TextChunker(chunkSize, chunkOverlap, this::add);
+        }
+
+        private void add(String content, int page) {
+            Map<String, Object> meta = new LinkedHashMap<>();
+            if (attributes != null) {
+                for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                    if (entry.getValue() != null && !entry.getValue().trim().isEmpty()) {
+                        meta.put(entry.getKey(), entry.getValue().trim());
+                    }
+                }
+            }
+            meta.put("source", source);
+            meta.put("uploader_id", uploaderId);
+            meta.put("page", page);
+            meta.put("chunk_index", chunkIndex++);
+            meta.put("ingestion_id", ingestionId);
+            meta.put("embedding_model", embeddingProvider.getModel());
+            try {
+                metadata.add(objectMapper.writeValueAsString(meta));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            contents.add(content);
+            if (contents.size() >= batchSize) {
+                submit();
+            }
+        }
+
+        /**
+         * 提交当前批次，进行中的批次达到上限时阻塞读取线程
+         */
+        private void submit() {
+            if (contents.isEmpty()) {
+                return;
+            }
+            checkFailures();
+            List<String> batchContents = contents;
+            List<String> batchMetadata = metadata;
+            contents = new ArrayList<>(batchSize);
+            metadata = new ArrayList<>(batchSize);
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("知识库导入被中断", e);
+            }
+            try {
+                futures.add(executor.submit(() -> {
+                    try {
+                        write(batchContents, batchMetadata);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            } catch (TaskRejectedException e) {
+                inFlight.release();
+                throw new RuntimeException("知识库导入任务繁忙，请稍后再试", e);
+            }
+        }
+
+        private void write(List<String> batchContents, List<String> batchMetadata) {
+            if (aborted) {
+                return;
+            }
+            List<float[]> embeddings = embeddingProvider.embedAll(batchContents);
+            if (aborted) {
+                return;
+            }
+            List<Object[]> rows = new ArrayList<>(batchContents.size());
+            for (int i = 0; i < batchContents.size(); i++) {
+                rows.add(new Object[]{batchContents.get(i), batchMetadata.get(i),
+                        KnowledgeRetrievalService.toVectorLiteral(embeddings.get(i))});
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            inserted.addAndGet(rows.size());
+        }
+
+        /**
+         * 已完成的批次中有失败时立即停止读取
+         */
+        private void checkFailures() {
+            for (Future<?> future : futures) {
+                if (future.isDone()) {
+                    await(future);
+                }
+            }
+        }
+
+        void finish() {
+            submit();
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        }
+
+        /**
+         * 停止尚未开始写入的批次，并等待已开始的批次结束，避免清理之后仍有数据写入
+         */
+        void abort() {
+            aborted = true;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    // 失败原因已由调用方处理
+                }
+            }
+        }
+
+        private void await(Future<?> future) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("知识库导入被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause
+                        : new RuntimeException("知识库导入失败: " + cause.getMessage(), cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.payload.response.KnowledgeChunk;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 知识库检索服务
+ * 在后端完成查询向量化和documents表的检索，检索结果随请求发送给AI服务，使检索可以在后端缓存和统计，而不是每次请求都由上游重新执行。
+ * 检索方式有两种：vector只按向量相似度检索；hybrid同时按全文检索和向量相似度排序，
+ * 两个排序结果以倒数排名融合（RRF）合并，课程术语等精确匹配的文本块即使向量相似度不高也能排在前面。
+ * 只检索由当前向量化模型生成的文本块（元数据embedding_model），不同模型的向量之间的相似度没有意义；
+ * 没有该字段的旧数据由AI服务写入，视为rag.embedding.untagged-model生成
+ */
+@Service
+public class KnowledgeRetrievalService {
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeRetrievalService.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final ObjectReader METADATA_READER = objectMapper.readerFor(Map.class);
+
+    private static final String MODEL_CONDITION =
+            "coalesce(metadata->>'embedding_model', :untaggedModel) = :model";
+
+    // 按向量索引取回的近邻，内层查询只排序和限制行数，以便使用HNSW/IVFFlat索引；
+    // 元数据、模型和相似度条件在外层对这些近邻过滤，过滤条件写在内层时索引同样只返回ef_search个近邻，再过滤后结果会静默变少
+    private static final String NEAREST_SQL =
+            "select id, content, metadata, embedding <=> cast(:embedding as vector) as distance from documents "
+                    + "where embedding is not null order by embedding <=> cast(:embedding as vector) limit :annLimit";
+
+    // 与match_documents函数的条件一致，另外按元数据和向量化模型过滤
+    private static final String MATCH_SQL =
+            "select id, content, metadata::text as metadata, 1 - distance as similarity "
+                    + "from (" + NEAREST_SQL + ") nearest where metadata @> cast(:filter as jsonb) and " + MODEL_CONDITION + " "
+                    + "and 1 - distance > :threshold "
+                    + "order by distance limit :topK";
+
+    // 向量和全文检索各取candidates个候选，按 1/(rrfK + 排名) 之和排序；全文检索把查询的词项以“或”连接，按ts_rank_cd排序。
+    // 向量候选需要超过match-threshold；只由全文检索命中的文本块需要超过较低的text-match-threshold，
+    // 避免只共享常见词的无关文本块进入结果，语料中没有相关内容时返回空结果
+    private static final String HYBRID_SQL =
+            "with query as ("
+                    + "  select replace(plainto_tsquery('simple', public.cjk_bigram_text(:query))::text, ' & ', ' | ')::tsquery as tsq"
+                    + "), vector_ranked as ("
+                    + "  select id, row_number() over (order by distance) as rank from ("
+                    + "    select id, distance from (" + NEAREST_SQL + ") nearest"
+                    + "    where metadata @> cast(:filter as jsonb) and " + MODEL_CONDITION
+                    + "    and 1 - distance > :threshold"
+                    + "    order by distance limit :candidates) v"
+                    + "), text_ranked as ("
+                    + "  select id, row_number() over (order by score desc) as rank from ("
+                    + "    select d.id, ts_rank_cd(d.content_tsv, q.tsq) as score from documents d, query q"
+                    + "    where d.content_tsv @@ q.tsq and d.metadata @> cast(:filter as jsonb)"
+                    + "    and coalesce(d.metadata->>'embedding_model', :untaggedModel) = :model"
+                    + "    order by score desc limit :candidates) t"
+                    + "), fused as ("
+                    + "  select coalesce(v.id, t.id) as id, v.id is not null as vector_match,"
+                    + "    coalesce(1.0 / (:rrfK + v.rank), 0) + coalesce(1.0 / (:rrfK + t.rank), 0) as score"
+                    + "  from vector_ranked v full outer join text_ranked t on v.id = t.id"
+                    + ") "
+                    + "select d.id, d.content, d.metadata::text as metadata, "
+                    + "1 - (d.embedding <=> cast(:embedding as vector)) as similarity "
+                    + "from fused f join documents d on d.id = f.id "
+                    + "where f.vector_match or 1 - (d.embedding <=> cast(:embedding as vector)) > :textThreshold "
+                    + "order by f.score desc limit :topK";
+
+    // hybrid方式依赖的全文检索列和分词函数，由20250805迁移创建
+    private static final String HYBRID_SCHEMA_SQL =
+            "select exists (select 1 from information_schema.columns "
+                    + "where table_schema = 'public' and table_name = 'documents' and column_name = 'content_tsv') "
+                    + "and to_regprocedure('public.cjk_bigram_text(text)') is not null";
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private VectorIndexService vectorIndexService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rag.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rag.embedding.untagged-model:moonshot-v1-embedding}")
+    private String untaggedModel;
+
+    @Value("${rag.retrieval.mode:hybrid}")
+    private String mode;
+
+    @Value("${rag.retrieval.hybrid.candidates:40}")
+    private int hybridCandidates;
+
+    @Value("${rag.retrieval.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${rag.retrieval.hybrid.text-match-threshold:0.5}")
+    private double textMatchThreshold;
+
+    @Value("${rag.retrieval.filter-overfetch-factor:10}")
+    private int filterOverfetchFactor;
+
+    @Value("${rag.retrieval.top-k:5}")
+    private int defaultTopK;
+
+    @Value("${rag.retrieval.match-threshold:0.75}")
+    private double matchThreshold;
+
+    @Value("${rag.retrieval.max-context-chars:4000}")
+    private int maxContextChars;
+
+    @Value("${rag.retrieval.cache.max-size:1000}")
+    private long cacheMaxSize;
+
+    @Value("${rag.retrieval.cache.ttl-minutes:10}")
+    private long cacheTtlMinutes;
+
+    // 规范化查询文本、top-k和过滤条件到检索结果的缓存，知识库更新后的短时间内可能返回旧结果
+    private Cache<String, List<KnowledgeChunk>> results;
+
+    private Timer hitTimer;
+    private Timer successTimer;
+    private Timer errorTimer;
+    private DistributionSummary chunkCount;
+
+    @PostConstruct
+    public void init() {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+        this.hitTimer = retrievalTimer("hit", "success");
+        this.successTimer = retrievalTimer("miss", "success");
+        this.errorTimer = retrievalTimer("miss", "error");
+        this.chunkCount = DistributionSummary.builder("rag.retrieval.chunks")
+                .description("每次检索返回的文本块数")
+                .register(meterRegistry);
+        if (enabled && "hybrid".equals(mode)) {
+            checkHybridSchema();
+        }
+    }
+
+    /**
+     * 检查hybrid方式依赖的content_tsv列和cjk_bigram_text函数，缺少时改用vector方式，避免每次检索都失败后返回空结果
+     * 检查本身失败（如数据库暂时不可用）时保持配置的方式
+     */
+    private void checkHybridSchema() {
+        try {
+            Boolean ready = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject(HYBRID_SCHEMA_SQL, Boolean.class);
+            if (!Boolean.TRUE.equals(ready)) {
+                logger.warn("documents表缺少content_tsv列或cjk_bigram_text函数（迁移20250805未执行），知识库检索改用vector方式");
+                mode = "vector";
+            }
+        } catch (DataAccessException e) {
+            logger.warn("无法检查hybrid检索所需的数据库结构，继续使用hybrid方式: {}", e.getMessage());
+        }
+    }
+
+    private Timer retrievalTimer(String cache, String outcome) {
+        return Timer.builder("rag.retrieval")
+                .tag("cache", cache)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否启用后端检索，未启用时useRAG标志只转发给AI服务
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 按默认数量检索与查询最相关的文本块
+     * @param query 查询文本
+     * @return 文本块，按相似度降序排列
+     */
+    public List<KnowledgeChunk> retrieve(String query) {
+        return retrieve(query, defaultTopK, Collections.emptyMap());
+    }
+
+    /**
+     * 检索与查询最相关的文本块，结果总长度不超过max-context-chars
+     * 向量化或查询失败时返回空列表，由AI服务在没有知识库上下文的情况下回答
+     * @param query 查询文本
+     * @param topK 最多返回的数量
+     * @param filter 元数据过滤条件（如grade、subject、source），只返回元数据包含全部条件的文本块，空值的条件被忽略
+     * @return 文本块，vector方式按相似度降序排列，hybrid方式按融合排名排列
+     */
+    public List<KnowledgeChunk> retrieve(String query, int topK, Map<String, String> filter) {
+        if (!enabled || query == null || query.trim().isEmpty() || topK <= 0) {
+            return Collections.emptyList();
+        }
+
+        String filterJson = toFilterJson(filter);
+        String key = topK + "\u0000" + filterJson + "\u0000" + query.trim().replaceAll("\\s+", " ");
+        long start = System.nanoTime();
+        List<KnowledgeChunk> cached = results.getIfPresent(key);
+        if (cached != null) {
+            hitTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            return cached;
+        }
+
+        try {
+            float[] embedding = embeddingProvider.embed(query);
+            List<KnowledgeChunk> chunks = limitContext(search(query, embedding, topK, filterJson));
+            results.put(key, chunks);
+            successTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            chunkCount.record(chunks.size());
+            return chunks;
+        } catch (RuntimeException e) {
+            errorTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            logger.warn("知识库检索失败，继续在没有检索结果的情况下请求AI服务: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 使检索结果缓存失效，知识库内容变化后调用
+     */
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    /**
+     * 执行检索，使用当前的索引查询参数
+     * hybrid方式先按相似度阈值筛选候选，再由融合排名和top-k决定返回的文本块。
+     * 向量检索先由索引取回近邻再过滤，有元数据过滤条件时按filter-overfetch-factor倍多取近邻，并相应调高本次查询的ef_search；
+     * 满足条件的文本块在近邻中占比低于1/filter-overfetch-factor时，返回的数量仍可能少于top-k（ef_search最大为1000），
+     * pgvector 0.8的迭代索引扫描可以消除这一限制，但目前不要求该版本
+     * @param query 查询文本，用于全文检索
+     * @param embedding 查询向量
+     * @param topK 最多返回的数量
+     * @param filterJson 元数据过滤条件，没有条件时为{}
+     * @return 文本块
+     */
+    private List<KnowledgeChunk> search(String query, float[] embedding, int topK, String filterJson) {
+        RowMapper<KnowledgeChunk> rowMapper = (rs, rowNum) -> new KnowledgeChunk(
+                rs.getLong("id"),
+                rs.getString("content"),
+                parseMetadata(rs.getString("metadata")),
+                rs.getDouble("similarity"));
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("query", query)
+                .addValue("embedding", toVectorLiteral(embedding))
+                .addValue("model", embeddingProvider.getModel())
+                .addValue("untaggedModel", untaggedModel)
+                .addValue("filter", filterJson)
+                .addValue("threshold", matchThreshold)
+                .addValue("textThreshold", textMatchThreshold)
+                .addValue("candidates", Math.max(hybridCandidates, topK))
+                .addValue("rrfK", rrfK)
+                .addValue("topK", topK);
+        boolean hybrid = "hybrid".equals(mode);
+        int vectorLimit = hybrid ? Math.max(hybridCandidates, topK) : topK;
+        int annLimit = "{}".equals(filterJson) ? vectorLimit : vectorLimit * Math.max(1, filterOverfetchFactor);
+        params.addValue("annLimit", annLimit);
+        String sql = hybrid ? HYBRID_SQL : MATCH_SQL;
+        return vectorIndexService.withSearchSettings(annLimit,
+                () -> namedParameterJdbcTemplate.query(sql, params, rowMapper));
+    }
+
+    /**
+     * 将过滤条件转换为jsonb包含查询使用的JSON对象，忽略空值，键按字母排序以便作为缓存键
+     * @param filter 过滤条件
+     * @return JSON对象文本
+     */
+    private static String toFilterJson(Map<String, String> filter) {
+        Map<String, String> conditions = new TreeMap<>();
+        if (filter != null) {
+            for (Map.Entry<String, String> entry : filter.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().trim().isEmpty()) {
+                    conditions.put(entry.getKey(), entry.getValue().trim());
+                }
+            }
+        }
+        try {
+            return objectMapper.writeValueAsString(conditions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 按相似度顺序保留文本块，直到总长度达到上限，至少保留一块
+     * @param chunks 文本块
+     * @return 保留的文本块
+     */
+    private List<KnowledgeChunk> limitContext(List<KnowledgeChunk> chunks) {
+        List<KnowledgeChunk> kept = new ArrayList<>(chunks.size());
+        int chars = 0;
+        for (KnowledgeChunk chunk : chunks) {
+            int length = chunk.getContent() == null ? 0 : chunk.getContent().length();
+            if (!kept.isEmpty() && chars + length > maxContextChars) {
+                break;
+            }
+            kept.add(chunk);
+            chars += length;
+        }
+        return Collections.unmodifiableList(kept);
+    }
+
+    private static Map<String, Object> parseMetadata(String json) {
+        if (json == null || json.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return METADATA_READER.readValue(json);
+        } catch (JsonProcessingException e) {
+            logger.warn("无法解析文档元数据: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 将向量转换为pgvector的文本格式，例如[0.1,0.2,0.3]
+     * @param embedding 向量
+     * @return 文本格式
+     */
+    public static String toVectorLiteral(float[] embedding) {
+        StringBuilder literal = new StringBuilder(embedding.length * 10 + 2).append('[');
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(embedding[i]);
+        }
+        return literal.append(']').toString();
+    }
+}
@@ -0,0 +1,179 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.model.LessonPlan;
+import com.aiedu.platform.payload.request.LessonPlanRequest;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * 教案生成结果缓存
+ * 以规范化后的请求参数哈希为键缓存AI生成的教案，相同参数的并发请求共享同一次上游调用
+ */
+@Service
+public class LessonPlanGenerationCache {
+    // 知识库增强生成的教案的缓存键前缀，知识库内容变化时按前缀失效
+    private static final String RAG_KEY_PREFIX = "rag:";
+
+    @Autowired
+    private AIService aiService;
+
+    private final boolean enabled;
+
+    private final AsyncCache<String, LessonPlan> cache;
+
+    public LessonPlanGenerationCache(@Value("${lesson-plan.cache.enabled:true}") boolean enabled,
+                                     @Value("${lesson-plan.cache.max-size:500}") long maxSize,
+                                     @Value("${lesson-plan.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .buildAsync();
+    }
+
+    /**
+     * 生成教案，命中缓存时直接返回缓存结果的副本
+     * 生成失败的结果不会被缓存
+     * @param request 教案请求，bypassCache为true时跳过缓存重新生成并刷新缓存
+     * @return 生成的教案
+     */
+    public LessonPlan generate(LessonPlanRequest request) {
+        String key = cacheKey(request);
+
+        CompletableFuture<LessonPlan> future;
+        if (!enabled) {
+            future = load(request);
+        } else if (request.isBypassCache()) {
+            future = load(request);
+            cache.put(key, future);
+        } else {
+            future = cache.get(key, (k, executor) -> load(request));
+        }
+
+        return copyOf(await(future));
+    }
+
+    /**
+     * 使知识库增强生成的教案失效（包括仍在生成中的），知识库内容变化后调用
+     */
+    public void invalidateKnowledgePlans() {
+        cache.synchronous().asMap().keySet().removeIf(key -> key.startsWith(RAG_KEY_PREFIX));
+    }
+
+    /**
+     * 调用AI服务生成教案
+     * @param request 教案请求
+     * @return 生成结果
+     */
+    private CompletableFuture<LessonPlan> load(LessonPlanRequest request) {
+        return aiService.generateLessonPlanAsync(
+                request.getGrade(),
+                request.getModule(),
+                request.getKnowledgePoint(),
+                request.getDuration(),
+                request.getPreferences(),
+                request.getCustomRequirements(),
+                request.isUseRAG()
+        ).toFuture();
+    }
+
+    /**
+     * 计算请求的缓存键：字段去除首尾空白、合并连续空白，教学偏好去重排序后取SHA-256，
+     * 使用知识库增强的请求加上rag:前缀
+     * @param request 教案请求
+     * @return 缓存键
+     */
+    static String cacheKey(LessonPlanRequest request) {
+        List<String> preferences = request.getPreferences() == null ? Collections.emptyList()
+                : request.getPreferences().stream()
+                        .map(LessonPlanGenerationCache::normalize)
+                        .filter(p -> !p.isEmpty())
+                        .distinct()
+                        .sorted()
+                        .collect(Collectors.toList());
+
+        String canonical = String.join("\u0000",
+                "v1",
+                normalize(request.getGrade()),
+                normalize(request.getModule()),
+                normalize(request.getKnowledgePoint()),
+                String.valueOf(request.getDuration()),
+                String.join("\u0001", preferences),
+                normalize(request.getCustomRequirements()),
+                String.valueOf(request.isUseRAG()));
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(canonical.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(RAG_KEY_PREFIX.length() + hash.length * 2);
+            if (request.isUseRAG()) {
+                key.append(RAG_KEY_PREFIX);
+            }
+            for (byte b : hash) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 等待生成结果，将异步异常还原为原始的运行时异常
+     * @param future 生成结果
+     * @return 教案
+     */
+    private static LessonPlan await(CompletableFuture<LessonPlan> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("生成教案被中断", e);
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("生成教案失败：" + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 复制教案，缓存中的实例在多个请求间共享，不能直接交给调用方修改
+     * @param source 缓存中的教案
+     * @return 副本
+     */
+    private static LessonPlan copyOf(LessonPlan source) {
+        LessonPlan copy = new LessonPlan();
+        copy.setTitle(source.getTitle());
+        copy.setGrade(source.getGrade());
+        copy.setModule(source.getModule());
+        copy.setKnowledgePoint(source.getKnowledgePoint());
+        copy.setDuration(source.getDuration());
+        copy.setObjectives(source.getObjectives());
+        copy.setKeyPoints(source.getKeyPoints());
+        copy.setDifficultPoints(source.getDifficultPoints());
+        copy.setResources(source.getResources());
+        copy.setTeachingProcess(source.getTeachingProcess());
+        copy.setEvaluation(source.getEvaluation());
+        copy.setExtension(source.getExtension());
+        return copy;
+    }
+}
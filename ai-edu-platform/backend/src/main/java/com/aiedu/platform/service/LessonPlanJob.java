@@ -0,0 +1,116 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.model.LessonPlan;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 教案生成任务，保存任务状态、结果以及等待完成通知的订阅者
+ */
+public class LessonPlanJob {
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        PENDING, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id;
+    private final Long userId;
+    private final LocalDateTime createdAt;
+    private volatile Status status = Status.PENDING;
+    private volatile LessonPlan lessonPlan;
+    private volatile String error;
+    private volatile LocalDateTime completedAt;
+    private final List<SseEmitter> subscribers = new ArrayList<>();
+
+    public LessonPlanJob(String id, Long userId) {
+        this.id = id;
+        this.userId = userId;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LessonPlan getLessonPlan() {
+        return lessonPlan;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public boolean isDone() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    void markRunning() {
+        this.status = Status.RUNNING;
+    }
+
+    /**
+     * 标记任务成功，返回需要通知的订阅者
+     * @param lessonPlan 生成的教案
+     * @return 订阅者
+     */
+    synchronized List<SseEmitter> succeed(LessonPlan lessonPlan) {
+        this.lessonPlan = lessonPlan;
+        return complete(Status.SUCCEEDED);
+    }
+
+    /**
+     * 标记任务失败，返回需要通知的订阅者
+     * @param error 错误信息
+     * @return 订阅者
+     */
+    synchronized List<SseEmitter> fail(String error) {
+        this.error = error;
+        return complete(Status.FAILED);
+    }
+
+    /**
+     * 添加完成通知的订阅者
+     * @param emitter 订阅者
+     * @return 任务已完成时返回false，调用方应直接发送结果
+     */
+    synchronized boolean subscribe(SseEmitter emitter) {
+        if (isDone()) {
+            return false;
+        }
+        subscribers.add(emitter);
+        return true;
+    }
+
+    synchronized void unsubscribe(SseEmitter emitter) {
+        subscribers.remove(emitter);
+    }
+
+    private List<SseEmitter> complete(Status status) {
+        this.completedAt = LocalDateTime.now();
+        this.status = status;
+        List<SseEmitter> toNotify = new ArrayList<>(subscribers);
+        subscribers.clear();
+        return toNotify;
+    }
+}
@@ -0,0 +1,155 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.model.LessonPlan;
+import com.aiedu.platform.model.User;
+import com.aiedu.platform.payload.request.LessonPlanRequest;
+import com.aiedu.platform.payload.response.LessonPlanJobResponse;
+import com.aiedu.platform.payload.response.LessonPlanResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 教案生成任务服务
+ * 提交后立即返回任务ID，生成在有界线程池中执行，客户端轮询任务状态或通过SSE订阅完成通知
+ */
+@Service
+public class LessonPlanJobService {
+    private static final Logger logger = LoggerFactory.getLogger(LessonPlanJobService.class);
+
+    @Autowired
+    private LessonPlanGenerationCache lessonPlanGenerationCache;
+
+    @Autowired
+    @Qualifier("lessonPlanJobExecutor")
+    private TaskExecutor lessonPlanJobExecutor;
+
+    @Value("${lesson-plan.jobs.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    private final Cache<String, LessonPlanJob> jobs;
+
+    public LessonPlanJobService(@Value("${lesson-plan.jobs.ttl-minutes:30}") long ttlMinutes,
+                                @Value("${lesson-plan.jobs.max-retained:10000}") long maxRetained) {
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(maxRetained)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    /**
+     * 提交教案生成任务
+     * @param user 当前用户
+     * @param request 教案请求
+     * @return 任务
+     * @throws TaskRejectedException 任务队列已满
+     */
+    public LessonPlanJob submit(User user, LessonPlanRequest request) {
+        LessonPlanJob job = new LessonPlanJob(UUID.randomUUID().toString(), user.getId());
+        jobs.put(job.getId(), job);
+        try {
+            lessonPlanJobExecutor.execute(() -> run(job, request));
+        } catch (TaskRejectedException e) {
+            jobs.invalidate(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * 根据ID查找任务，已过期的任务查找不到
+     * @param jobId 任务ID
+     * @return 任务
+     */
+    public Optional<LessonPlanJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    /**
+     * 订阅任务完成通知，订阅时先发送一次当前状态，任务完成后发送done事件并关闭连接
+     * @param job 任务
+     * @return SSE发射器
+     */
+    public SseEmitter subscribe(LessonPlanJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> job.unsubscribe(emitter));
+        emitter.onTimeout(() -> job.unsubscribe(emitter));
+
+        try {
+            emitter.send(SseEmitter.event().name("status").data(toResponse(job)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+
+        if (!job.subscribe(emitter)) {
+            sendDone(emitter, toResponse(job));
+        }
+        return emitter;
+    }
+
+    /**
+     * 将任务转换为响应对象
+     * @param job 任务
+     * @return 任务响应
+     */
+    public static LessonPlanJobResponse toResponse(LessonPlanJob job) {
+        LessonPlan lessonPlan = job.getLessonPlan();
+        return new LessonPlanJobResponse(
+                job.getId(),
+                job.getStatus().name(),
+                lessonPlan != null ? LessonPlanResponse.fromEntity(lessonPlan) : null,
+                job.getError(),
+                job.getCreatedAt(),
+                job.getCompletedAt()
+        );
+    }
+
+    private void run(LessonPlanJob job, LessonPlanRequest request) {
+        job.markRunning();
+
+        List<SseEmitter> subscribers;
+        try {
+            LessonPlan lessonPlan = lessonPlanGenerationCache.generate(request);
+            lessonPlan.setCreatedAt(LocalDateTime.now());
+            lessonPlan.setUpdatedAt(LocalDateTime.now());
+            subscribers = job.succeed(lessonPlan);
+        } catch (RuntimeException e) {
+            logger.error("教案生成任务失败 {}: {}", job.getId(), e.getMessage());
+            subscribers = job.fail(e.getMessage());
+        }
+
+        // 完成后刷新过期时间，保证客户端有完整的时间窗口读取结果
+        jobs.put(job.getId(), job);
+
+        LessonPlanJobResponse response = toResponse(job);
+        for (SseEmitter emitter : subscribers) {
+            sendDone(emitter, response);
+        }
+    }
+
+    private static void sendDone(SseEmitter emitter, LessonPlanJobResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("done").data(response));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+        }
+    }
+}
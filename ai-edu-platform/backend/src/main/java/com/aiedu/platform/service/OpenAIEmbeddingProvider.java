@@ -0,0 +1,141 @@
+package com.aiedu.platform.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于OpenAI兼容接口（POST {url}/embeddings）的向量化提供者
+ * 输入按批次发送，每批最多batchSize段文本
+ */
+@Component
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAIEmbeddingProvider.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<Map<String, Object>>() {};
+
+    @Value("${rag.embedding.url:https://api.moonshot.cn/v1}")
+    private String embeddingUrl;
+
+    @Value("${rag.embedding.api-key:}")
+    private String apiKey;
+
+    @Value("${rag.embedding.model:moonshot-v1-embedding}")
+    private String model;
+
+    @Value("${rag.embedding.dimensions:1536}")
+    private int dimensions;
+
+    @Value("${rag.embedding.batch-size:64}")
+    private int batchSize;
+
+    @Value("${rag.embedding.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${rag.embedding.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    private final WebClient webClient;
+
+    private final AIMetrics aiMetrics;
+
+    public OpenAIEmbeddingProvider(@Qualifier("embeddingWebClient") WebClient webClient, AIMetrics aiMetrics) {
+        this.webClient = webClient;
+        this.aiMetrics = aiMetrics;
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (int start = 0; start < texts.size(); start += batchSize) {
+            List<String> batch = texts.subList(start, Math.min(texts.size(), start + batchSize));
+            embeddings.addAll(embedBatch(batch));
+        }
+        return embeddings;
+    }
+
+    /**
+     * 发送一批文本，响应中的向量按index字段还原为输入顺序
+     * @param batch 文本
+     * @return 向量
+     */
+    @SuppressWarnings("unchecked")
+    private List<float[]> embedBatch(List<String> batch) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("input", batch);
+        aiMetrics.recordRequestSize("embedding", batch);
+
+        AtomicInteger retries = new AtomicInteger();
+        Mono<Map<String, Object>> call = webClient.post()
+                .uri(embeddingUrl + "/embeddings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(headers -> {
+                    if (!apiKey.isEmpty()) {
+                        headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+                    }
+                })
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE)
+                .retryWhen(Retry.backoff(Math.max(0, maxRetries - 1), Duration.ofMillis(retryBackoffMs))
+                        .filter(AIService::isUpstreamFailure)
+                        .doBeforeRetry(signal -> retries.incrementAndGet())
+                        .doBeforeRetry(signal -> logger.warn("向量化请求失败 (尝试 {}/{}): {}",
+                                signal.totalRetries() + 1, maxRetries, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+
+        Map<String, Object> responseBody = aiMetrics.timed("embedding", retries, call).block();
+        if (responseBody == null || !(responseBody.get("data") instanceof List)) {
+            throw new RuntimeException("向量化服务返回了无效的响应");
+        }
+
+        List<Map<String, Object>> data = new ArrayList<>((List<Map<String, Object>>) responseBody.get("data"));
+        if (data.size() != batch.size()) {
+            throw new RuntimeException("向量化服务返回的向量数量与输入不一致");
+        }
+        data.sort(Comparator.comparingInt(item -> ((Number) item.getOrDefault("index", 0)).intValue()));
+
+        List<float[]> embeddings = new ArrayList<>(data.size());
+        for (Map<String, Object> item : data) {
+            List<Number> values = (List<Number>) item.get("embedding");
+            if (values == null || values.size() != dimensions) {
+                throw new RuntimeException("向量维度与配置不一致: 期望" + dimensions);
+            }
+            float[] embedding = new float[values.size()];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = values.get(i).floatValue();
+            }
+            embeddings.add(embedding);
+        }
+        return embeddings;
+    }
+}
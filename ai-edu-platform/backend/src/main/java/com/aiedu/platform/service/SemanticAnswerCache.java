@@ -0,0 +1,325 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.payload.response.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对话语义缓存
+ * 以问题向量在answer_cache表中查找上下文相同、相似度超过阈值的已有回答，命中时不再调用多智能体服务
+ * 上下文指纹由问题之前最近几条消息计算，避免“能再举个例子吗”这类追问在不同对话之间串用回答
+ */
+@Service
+public class SemanticAnswerCache {
+    private static final Logger logger = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    // 按指纹索引过滤后精确计算距离；表上不建全局向量索引，否则近邻会在过滤前被截断到ef_search个。
+    // 首轮提问共用chat:none指纹，查找耗时随这部分缓存行数线性增长，由过期清理限制
+    private static final String LOOKUP_SQL =
+            "select id, answer, 1 - (embedding <=> ?::vector) as similarity from answer_cache "
+                    + "where context_fingerprint = ? and embedding_model = ? and expires_at > now() "
+                    + "order by embedding <=> ?::vector limit 1";
+
+    private static final String INSERT_SQL =
+            "insert into answer_cache (question, context_fingerprint, embedding_model, embedding, answer, expires_at) "
+                    + "values (?, ?, ?, ?::vector, ?, ?)";
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.semantic-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.semantic-cache.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    @Value("${chat.semantic-cache.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${chat.semantic-cache.context-messages:2}")
+    private int contextMessages;
+
+    @Value("${chat.semantic-cache.max-question-chars:500}")
+    private int maxQuestionChars;
+
+    @Value("${chat.semantic-cache.purge-interval-minutes:60}")
+    private long purgeIntervalMinutes;
+
+    private final AtomicLong lastPurgeMillis = new AtomicLong(System.currentTimeMillis());
+
+    private Counter hits;
+    private Counter misses;
+    private Counter skipped;
+    private Counter errors;
+
+    @PostConstruct
+    public void init() {
+        this.hits = lookupCounter("hit");
+        this.misses = lookupCounter("miss");
+        this.skipped = lookupCounter("skipped");
+        this.errors = lookupCounter("error");
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder("chat.answer.cache")
+                .description("对话语义缓存查找次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取回复：命中缓存时直接返回缓存的回答，否则调用多智能体服务并缓存非兜底回复
+     * @param history 对话历史，最后一条为本轮的用户消息
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return AI回复
+     */
+    public String getReply(List<ChatResponse.MessageDto> history, String message, boolean useRAG) {
+        Lookup lookup = lookup(history, message, useRAG);
+        if (lookup.answer != null) {
+            return lookup.answer;
+        }
+
+        AIReply reply = aiService.getMultiAgentReplyResult(history, message, useRAG).block();
+        if (!reply.isFallback()) {
+            store(lookup, message, reply.getContent());
+        }
+        return reply.getContent();
+    }
+
+    /**
+     * 以流式方式获取回复：命中缓存时以单个片段返回缓存的回答，否则转发多智能体服务的流式回复，完整结束后写入缓存
+     * 上游调用在请求线程上组装，以便读取当前用户；缓存查找和写入在boundedElastic线程上执行
+     * @param history 对话历史，最后一条为本轮的用户消息
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return AI回复片段流
+     */
+    public Flux<String> streamReply(List<ChatResponse.MessageDto> history, String message, boolean useRAG) {
+        Flux<AIReply> upstream = aiService.streamMultiAgentReplyResult(history, message, useRAG);
+        if (!enabled) {
+            return upstream.map(AIReply::getContent);
+        }
+
+        return Mono.fromCallable(() -> lookup(history, message, useRAG))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(lookup -> {
+                    if (lookup.answer != null) {
+                        return Flux.just(lookup.answer);
+                    }
+                    StringBuilder reply = new StringBuilder();
+                    AtomicBoolean fallback = new AtomicBoolean();
+                    return upstream
+                            .doOnNext(chunk -> {
+                                reply.append(chunk.getContent());
+                                if (chunk.isFallback()) {
+                                    fallback.set(true);
+                                }
+                            })
+                            .map(AIReply::getContent)
+                            .concatWith(Mono.fromRunnable(() -> {
+                                        if (!fallback.get()) {
+                                            store(lookup, message, reply.toString());
+                                        }
+                                    })
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .then(Mono.empty()));
+                });
+    }
+
+    /**
+     * 使所有缓存的回答失效
+     * @return 删除的条数
+     */
+    public int invalidateAll() {
+        return jdbcTemplate.update("delete from answer_cache");
+    }
+
+    /**
+     * 使与指定问题相似（相似度不低于命中阈值）的缓存回答失效，不区分对话上下文
+     * @param question 问题
+     * @return 删除的条数
+     */
+    public int invalidateSimilar(String question) {
+        String vector = KnowledgeRetrievalService.toVectorLiteral(embeddingProvider.embed(question.trim()));
+        return jdbcTemplate.update("delete from answer_cache where embedding_model = ? "
+                        + "and 1 - (embedding <=> ?::vector) >= ?",
+                embeddingProvider.getModel(), vector, similarityThreshold);
+    }
+
+    /**
+     * 使知识库增强的回答失效，知识库内容变化后调用
+     * @return 删除的条数
+     */
+    public int invalidateKnowledgeAnswers() {
+        return jdbcTemplate.update("delete from answer_cache where context_fingerprint like 'rag:%'");
+    }
+
+    /**
+     * 查找缓存，查找失败按未命中处理
+     * @param history 对话历史
+     * @param message 用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return 查找结果，未命中时answer为null，不可缓存时embedding为null
+     */
+    private Lookup lookup(List<ChatResponse.MessageDto> history, String message, boolean useRAG) {
+        if (!enabled || message == null || message.trim().isEmpty() || message.length() > maxQuestionChars) {
+            skipped.increment();
+            return new Lookup(null, null, null);
+        }
+
+        String fingerprint = contextFingerprint(history, useRAG);
+        try {
+            float[] embedding = embeddingProvider.embed(message.trim());
+            String vector = KnowledgeRetrievalService.toVectorLiteral(embedding);
+            List<CachedAnswer> candidates = jdbcTemplate.query(LOOKUP_SQL,
+                    (rs, rowNum) -> new CachedAnswer(rs.getLong("id"), rs.getString("answer"), rs.getDouble("similarity")),
+                    vector, fingerprint, embeddingProvider.getModel(), vector);
+
+            if (!candidates.isEmpty() && candidates.get(0).similarity >= similarityThreshold) {
+                CachedAnswer hit = candidates.get(0);
+                jdbcTemplate.update("update answer_cache set hit_count = hit_count + 1, last_hit_at = now() where id = ?",
+                        hit.id);
+                hits.increment();
+                return new Lookup(fingerprint, vector, hit.answer);
+            }
+            misses.increment();
+            return new Lookup(fingerprint, vector, null);
+        } catch (RuntimeException e) {
+            errors.increment();
+            logger.warn("对话语义缓存查找失败，直接调用AI服务: {}", e.getMessage());
+            return new Lookup(null, null, null);
+        }
+    }
+
+    /**
+     * 写入缓存，查找失败的请求和空回复不会写入，写入失败只记录日志；调用方负责排除兜底回复
+     * @param lookup 查找结果
+     * @param message 用户消息
+     * @param reply AI回复
+     */
+    private void store(Lookup lookup, String message, String reply) {
+        if (lookup.vector == null || reply == null || reply.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, message.trim(), lookup.fingerprint, embeddingProvider.getModel(),
+                    lookup.vector, reply, Timestamp.from(Instant.now().plus(Duration.ofHours(ttlHours))));
+            purgeExpiredIfDue();
+        } catch (DataAccessException e) {
+            logger.warn("写入对话语义缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每隔purge-interval-minutes删除一次过期的缓存，由写入缓存的线程顺带执行
+     */
+    private void purgeExpiredIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastPurgeMillis.get();
+        if (now - last >= Duration.ofMinutes(purgeIntervalMinutes).toMillis()
+                && lastPurgeMillis.compareAndSet(last, now)) {
+            int purged = jdbcTemplate.update("delete from answer_cache where expires_at <= now()");
+            logger.debug("已清理{}条过期的对话语义缓存", purged);
+        }
+    }
+
+    /**
+     * 计算上下文指纹：本轮用户消息之前最近contextMessages条消息（含早期对话摘要）的SHA-256
+     * 知识库增强的回答使用单独的前缀，便于知识库更新时单独失效
+     * @param history 对话历史，最后一条为本轮的用户消息
+     * @param useRAG 是否使用知识库增强
+     * @return 上下文指纹
+     */
+    static String contextFingerprint(List<ChatResponse.MessageDto> history, int contextMessages, boolean useRAG) {
+        StringBuilder context = new StringBuilder();
+        if (history != null && history.size() > 1) {
+            int end = history.size() - 1;
+            for (int i = Math.max(0, end - contextMessages); i < end; i++) {
+                ChatResponse.MessageDto message = history.get(i);
+                context.append(message.getSender()).append('\u0000')
+                        .append(message.getContent() == null ? "" : message.getContent().trim().replaceAll("\\s+", " "))
+                        .append('\u0001');
+            }
+        }
+        String prefix = useRAG ? "rag:" : "chat:";
+        if (context.length() == 0) {
+            return prefix + "none";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(context.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(prefix);
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String contextFingerprint(List<ChatResponse.MessageDto> history, boolean useRAG) {
+        return contextFingerprint(history, contextMessages, useRAG);
+    }
+
+    /**
+     * 缓存查找结果
+     */
+    private static final class Lookup {
+        final String fingerprint;
+        final String vector;
+        final String answer;
+
+        Lookup(String fingerprint, String vector, String answer) {
+            this.fingerprint = fingerprint;
+            this.vector = vector;
+            this.answer = answer;
+        }
+    }
+
+    /**
+     * 缓存中最相似的回答
+     */
+    private static final class CachedAnswer {
+        final long id;
+        final String answer;
+        final double similarity;
+
+        CachedAnswer(long id, String answer, double similarity) {
+            this.id = id;
+            this.answer = answer;
+            this.similarity = similarity;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.aiedu.platform.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 增量文本分块器
+ * 文本按片段（例如PDF的一页）追加，缓冲区达到块大小时立即输出一块，因此内存占用与文件大小无关
+ * 块尽量在段落或句子结尾处切分，相邻块之间保留overlap个字符的重叠
+ */
+public class TextChunker {
+
+    /**
+     * 分块输出
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        /**
+         * @param content 块内容
+         * @param page 块起始位置所在的页码
+         */
+        void accept(String content, int page);
+    }
+
+    private static final String SENTENCE_ENDINGS = "。！？；.!?;";
+
+    private final int chunkSize;
+
+    private final int overlap;
+
+    private final ChunkConsumer consumer;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    // 缓冲区中各页的起始偏移和页码，第一项为缓冲区开头所在的页
+    private final Deque<int[]> pageStarts = new ArrayDeque<>();
+
+    // 缓冲区中是否有尚未输出过的内容（重叠部分不算）
+    private boolean pending;
+
+    public TextChunker(int chunkSize, int overlap, ChunkConsumer consumer) {
+        if (chunkSize <= 0 || overlap < 0 || overlap >= chunkSize) {
+            throw new IllegalArgumentException("块大小必须大于0且大于重叠长度");
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+        this.consumer = consumer;
+    }
+
+    /**
+     * 追加文本，缓冲区满时输出完整的块
+     * @param text 文本片段
+     * @param page 片段所在页码，纯文本文件为1
+     */
+    public void append(String text, int page) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (pageStarts.isEmpty() || pageStarts.peekLast()[1] != page) {
+            pageStarts.addLast(new int[]{buffer.length(), page});
+        }
+        buffer.append(text.replace("\r", ""));
+        pending = true;
+        while (buffer.length() >= chunkSize) {
+            emit(breakPoint());
+        }
+    }
+
+    /**
+     * 输出缓冲区中剩余的内容
+     */
+    public void finish() {
+        if (pending) {
+            output(buffer.toString());
+        }
+        buffer.setLength(0);
+        pageStarts.clear();
+        pending = false;
+    }
+
+    /**
+     * 在块的后五分之一范围内优先选择段落结尾，其次选择句子结尾，都没有时在块大小处切分
+     * @return 切分位置（不含）
+     */
+    private int breakPoint() {
+        int min = Math.max(overlap + 1, chunkSize - chunkSize / 5);
+        for (int i = chunkSize - 1; i >= min; i--) {
+            if (buffer.charAt(i) == '\n') {
+                return i + 1;
+            }
+        }
+        for (int i = chunkSize - 1; i >= min; i--) {
+            if (SENTENCE_ENDINGS.indexOf(buffer.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        return chunkSize;
+    }
+
+    /**
+     * 输出缓冲区前end个字符，保留末尾overlap个字符作为下一块的开头
+     * @param end 切分位置，大于overlap
+     */
+    private void emit(int end) {
+        output(buffer.substring(0, end));
+
+        int keepFrom = end - overlap;
+        buffer.delete(0, keepFrom);
+        pending = buffer.length() > overlap;
+
+        // 丢弃已完全移出缓冲区的页，剩余页的偏移前移
+        while (pageStarts.size() > 1) {
+            int[] first = pageStarts.removeFirst();
+            if (pageStarts.peekFirst()[0] > keepFrom) {
+                pageStarts.addFirst(first);
+                break;
+            }
+        }
+        for (int[] pageStart : pageStarts) {
+            pageStart[0] = Math.max(0, pageStart[0] - keepFrom);
+        }
+    }
+
+    private void output(String content) {
+        String trimmed = content.trim();
+        if (!trimmed.isEmpty()) {
+            consumer.accept(trimmed, pageStarts.isEmpty() ? 1 : pageStarts.peekFirst()[1]);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.aiedu.platform.service;
+
+import com.aiedu.platform.payload.request.VectorIndexRebuildRequest;
+import com.aiedu.platform.payload.request.VectorSearchSettingsRequest;
+import com.aiedu.platform.payload.response.VectorIndexReportResponse;
+import com.aiedu.platform.payload.response.VectorIndexStatusResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 向量索引管理服务
+ * 管理documents表embedding列上的近似最近邻索引（HNSW或IVFFlat）：查看索引状态、在不阻塞写入的情况下重建索引、
+ * 调整查询参数（hnsw.ef_search、ivfflat.probes），并以抽样文档对比索引检索与精确检索的召回率和延迟。
+ * 知识库检索依赖本服务应用查询参数，因此索引或参数变化后由调用方使检索结果缓存失效
+ */
+@Service
+public class VectorIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexService.class);
+
+    private static final String INDEX_NAME = "idx_documents_embedding";
+
+    private static final String NEW_INDEX_NAME = INDEX_NAME + "_new";
+
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private static final String INDEX_STATUS_SQL =
+            "select c.relname as name, pg_get_indexdef(i.indexrelid) as definition, "
+                    + "pg_relation_size(i.indexrelid) as size_bytes, i.indisvalid as valid "
+                    + "from pg_index i join pg_class c on c.oid = i.indexrelid join pg_am a on a.oid = c.relam "
+                    + "where i.indrelid = 'public.documents'::regclass and a.amname in ('hnsw', 'ivfflat') "
+                    + "order by c.relname";
+
+    private static final String SAMPLE_SQL =
+            "select embedding::text from documents where embedding is not null order by random() limit ?";
+
+    private static final String NEAREST_SQL =
+            "select id from documents where embedding is not null order by embedding <=> ?::vector limit ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${rag.index.hnsw.ef-search:40}")
+    private int initialEfSearch;
+
+    @Value("${rag.index.ivfflat.probes:10}")
+    private int initialProbes;
+
+    @Value("${rag.index.evaluation.max-sample-size:500}")
+    private int maxSampleSize;
+
+    // 查询参数可在运行时调整，重启后恢复为配置值
+    private final AtomicInteger efSearch = new AtomicInteger();
+    private final AtomicInteger probes = new AtomicInteger();
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        efSearch.set(initialEfSearch);
+        probes.set(initialProbes);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 在应用了当前查询参数的只读事务中执行向量检索
+     * 参数通过set_config(..., true)设置，只在本事务内生效，不会影响连接池中其他请求
+     * @param query 检索操作
+     * @return 检索结果
+     */
+    public <T> T withSearchSettings(Supplier<T> query) {
+        return withSearchSettings(0, query);
+    }
+
+    /**
+     * 在应用了当前查询参数的只读事务中执行向量检索，hnsw.ef_search至少为minEfSearch
+     * HNSW索引扫描最多返回ef_search行，检索需要取回的近邻多于当前ef_search时由调用方传入所需行数
+     * @param minEfSearch 本次检索的最小ef_search，不超过pgvector允许的最大值1000
+     * @param query 检索操作
+     * @return 检索结果
+     */
+    public <T> T withSearchSettings(int minEfSearch, Supplier<T> query) {
+        int ef = Math.max(efSearch.get(), Math.min(minEfSearch, MAX_EF_SEARCH));
+        return readOnlyTransaction.execute(status -> {
+            jdbcTemplate.queryForList(
+                    "select set_config('hnsw.ef_search', ?, true), set_config('ivfflat.probes', ?, true)",
+                    String.valueOf(ef), String.valueOf(probes.get()));
+            return query.get();
+        });
+    }
+
+    /**
+     * 获取向量索引状态
+     * @return 索引状态
+     */
+    public VectorIndexStatusResponse getStatus() {
+        List<VectorIndexStatusResponse.IndexInfo> indexes = jdbcTemplate.query(INDEX_STATUS_SQL,
+                (rs, rowNum) -> new VectorIndexStatusResponse.IndexInfo(
+                        rs.getString("name"),
+                        rs.getString("definition"),
+                        rs.getLong("size_bytes"),
+                        rs.getBoolean("valid")));
+        return new VectorIndexStatusResponse(countDocuments(), indexes, efSearch.get(), probes.get(),
+                rebuilding.get());
+    }
+
+    /**
+     * 调整查询参数，未指定的参数保持不变
+     * @param request 查询参数
+     * @return 调整后的索引状态
+     */
+    public VectorIndexStatusResponse updateSearchSettings(VectorSearchSettingsRequest request) {
+        if (request.getEfSearch() != null) {
+            efSearch.set(request.getEfSearch());
+        }
+        if (request.getProbes() != null) {
+            probes.set(request.getProbes());
+        }
+        logger.info("向量检索参数已调整: efSearch={} probes={}", efSearch.get(), probes.get());
+        return getStatus();
+    }
+
+    /**
+     * 重建向量索引
+     * 先并发创建新索引，成功后删除旧索引并将新索引改名，重建期间检索继续使用旧索引，写入不被阻塞。
+     * 未指定的参数按当前文档数取默认值：HNSW为m=16、ef_construction=64；
+     * IVFFlat的lists在一百万行以内为行数/1000，超过时为行数的平方根，probes同时调整为lists的平方根
+     * @param request 索引参数
+     * @return 重建后的索引状态
+     */
+    public VectorIndexStatusResponse rebuild(VectorIndexRebuildRequest request) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("向量索引正在重建中");
+        }
+        try {
+            long rows = countDocuments();
+            String method = request.getMethod();
+            String options;
+            if ("ivfflat".equals(method)) {
+                int lists = request.getLists() != null ? request.getLists() : defaultLists(rows);
+                options = "lists = " + lists;
+                probes.set(Math.max(1, (int) Math.round(Math.sqrt(lists))));
+            } else {
+                int m = request.getM() != null ? request.getM() : 16;
+                int efConstruction = request.getEfConstruction() != null ? request.getEfConstruction() : 64;
+                // ef_construction不能小于m的两倍
+                options = "m = " + m + ", ef_construction = " + Math.max(efConstruction, 2 * m);
+            }
+
+            long start = System.currentTimeMillis();
+            // create/drop index concurrently不能在事务中执行，这里的语句都以自动提交方式执行
+            jdbcTemplate.execute("drop index concurrently if exists public." + NEW_INDEX_NAME);
+            try {
+                jdbcTemplate.execute("create index concurrently " + NEW_INDEX_NAME + " on public.documents using "
+                        + method + " (embedding vector_cosine_ops) with (" + options + ")");
+            } catch (DataAccessException e) {
+                // 并发创建失败会留下无效索引
+                jdbcTemplate.execute("drop index concurrently if exists public." + NEW_INDEX_NAME);
+                throw new RuntimeException("创建向量索引失败: " + e.getMostSpecificCause().getMessage(), e);
+            }
+
+            for (VectorIndexStatusResponse.IndexInfo index : getStatus().getIndexes()) {
+                if (!NEW_INDEX_NAME.equals(index.getName())) {
+                    jdbcTemplate.execute("drop index concurrently if exists public." + quoteIdentifier(index.getName()));
+                }
+            }
+            jdbcTemplate.execute("alter index public." + NEW_INDEX_NAME + " rename to " + INDEX_NAME);
+            jdbcTemplate.execute("analyze public.documents");
+
+            logger.info("向量索引重建完成: method={} options=[{}] rows={} elapsedMs={}",
+                    method, options, rows, System.currentTimeMillis() - start);
+        } finally {
+            rebuilding.set(false);
+        }
+        return getStatus();
+    }
+
+    /**
+     * 评估当前索引和查询参数下的召回率与延迟
+     * 随机抽取文档向量作为查询，分别用索引检索和关闭索引扫描后的精确检索取前k个结果，
+     * 召回率为两者结果的交集占精确结果的比例
+     * @param sampleSize 抽样数
+     * @param k 每次检索返回的数量
+     * @return 评估报告
+     */
+    public VectorIndexReportResponse evaluate(int sampleSize, int k) {
+        int size = Math.min(sampleSize, maxSampleSize);
+        List<String> samples = jdbcTemplate.queryForList(SAMPLE_SQL, String.class, size);
+        if (samples.isEmpty()) {
+            throw new RuntimeException("知识库中没有可用于评估的文档");
+        }
+
+        List<Long> annNanos = new ArrayList<>(samples.size());
+        List<Long> exactNanos = new ArrayList<>(samples.size());
+        double recallSum = 0;
+        double minRecall = 1;
+        for (String vector : samples) {
+            long start = System.nanoTime();
+            List<Long> approximate = withSearchSettings(() -> nearest(vector, k));
+            annNanos.add(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Long> exact = readOnlyTransaction.execute(status -> {
+                jdbcTemplate.queryForList("select set_config('enable_indexscan', 'off', true), "
+                        + "set_config('enable_bitmapscan', 'off', true)");
+                return nearest(vector, k);
+            });
+            exactNanos.add(System.nanoTime() - start);
+
+            double recall = recall(approximate, exact);
+            recallSum += recall;
+            minRecall = Math.min(minRecall, recall);
+        }
+
+        return new VectorIndexReportResponse(samples.size(), k, efSearch.get(), probes.get(),
+                recallSum / samples.size(), minRecall,
+                percentileMs(annNanos, 0.50), percentileMs(annNanos, 0.95),
+                percentileMs(exactNanos, 0.50), percentileMs(exactNanos, 0.95));
+    }
+
+    private List<Long> nearest(String vector, int k) {
+        return jdbcTemplate.queryForList(NEAREST_SQL, Long.class, vector, k);
+    }
+
+    private long countDocuments() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from documents", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private static int defaultLists(long rows) {
+        if (rows > 1_000_000) {
+            return (int) Math.sqrt(rows);
+        }
+        return (int) Math.max(1, rows / 1000);
+    }
+
+    private static double recall(List<Long> approximate, List<Long> exact) {
+        if (exact.isEmpty()) {
+            return 1;
+        }
+        Set<Long> expected = new HashSet<>(exact);
+        int found = 0;
+        for (Long id : approximate) {
+            if (expected.contains(id)) {
+                found++;
+            }
+        }
+        return (double) found / exact.size();
+    }
+
+    private static double percentileMs(List<Long> nanos, double percentile) {
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,4 @@
+-- 压测环境的角色初始化，由 application-loadtest.properties 在启动时执行
+INSERT INTO roles (name) SELECT 'ROLE_STUDENT' WHERE NOT EXISTS (SELECT 1 FROM roles WHERE name = 'ROLE_STUDENT');
+INSERT INTO roles (name) SELECT 'ROLE_TEACHER' WHERE NOT EXISTS (SELECT 1 FROM roles WHERE name = 'ROLE_TEACHER');
+INSERT INTO roles (name) SELECT 'ROLE_ADMIN' WHERE NOT EXISTS (SELECT 1 FROM roles WHERE name = 'ROLE_ADMIN');
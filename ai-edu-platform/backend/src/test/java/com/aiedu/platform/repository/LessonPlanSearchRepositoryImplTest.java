@@ -0,0 +1,90 @@
+package com.aiedu.platform.repository;
+
+import com.aiedu.platform.payload.request.LessonPlanSearchRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class LessonPlanSearchRepositoryImplTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+
+    private final LessonPlanSearchRepositoryImpl repository = new LessonPlanSearchRepositoryImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void ordersFacetOnlySearchByCreationTime() {
+        LessonPlanSearchRequest request = new LessonPlanSearchRequest();
+        request.setGrade("七年级");
+        request.setMinDuration(40);
+
+        repository.search(1L, request, 0, 20);
+
+        String sql = itemsSql();
+        assertThat(sql).contains("l.grade = :grade", "l.duration >= :minDuration")
+                .endsWith(" order by l.created_at desc, l.id desc limit :limit offset :offset")
+                .doesNotContain("ts_rank", "order by 0");
+    }
+
+    @Test
+    void ordersKeywordSearchByRankThenCreationTime() {
+        LessonPlanSearchRequest request = new LessonPlanSearchRequest();
+        request.setQ("  一元二次方程 ");
+
+        repository.search(1L, request, 2, 10);
+
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        String sql = itemsSql(params);
+        assertThat(sql).endsWith(" order by ts_rank(l.search_vector, websearch_to_tsquery('simple', :q)) desc,"
+                + " l.created_at desc, l.id desc limit :limit offset :offset");
+        assertThat(params.getValue().getValue("q")).isEqualTo("一元二次方程");
+        assertThat(params.getValue().getValue("pattern")).isEqualTo("%一元二次方程%");
+        assertThat(params.getValue().getValue("offset")).isEqualTo(20L);
+    }
+
+    @Test
+    void treatsBlankKeywordAsNoKeyword() {
+        LessonPlanSearchRequest request = new LessonPlanSearchRequest();
+        request.setQ("   ");
+
+        repository.search(1L, request, 0, 20);
+
+        assertThat(itemsSql()).doesNotContain("ts_rank", ":q", "order by 0");
+    }
+
+    @Test
+    void escapesLikeWildcardsInKeyword() {
+        LessonPlanSearchRequest request = new LessonPlanSearchRequest();
+        request.setQ("100%_a\\b");
+
+        repository.search(1L, request, 0, 20);
+
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        itemsSql(params);
+        assertThat(params.getValue().getValue("pattern")).isEqualTo("%100\\%\\_a\\\\b%");
+    }
+
+    private String itemsSql() {
+        return itemsSql(ArgumentCaptor.forClass(MapSqlParameterSource.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private String itemsSql(ArgumentCaptor<MapSqlParameterSource> params) {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), params.capture(), any(RowMapper.class));
+        return sql.getValue();
+    }
+}
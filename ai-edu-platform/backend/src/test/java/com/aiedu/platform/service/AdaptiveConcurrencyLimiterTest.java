@@ -0,0 +1,233 @@
+package com.aiedu.platform.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long NO_LATENCY_LIMIT_MS = 60_000;
+
+    @Test
+    void handsReleasedPermitToWaiter() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9, NO_LATENCY_LIMIT_MS, 10, 10_000);
+        Sinks.One<String> first = Sinks.one();
+        AtomicReference<String> firstResult = new AtomicReference<>();
+        limiter.limit(first.asMono(), "alice").subscribe(firstResult::set);
+
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        AtomicReference<String> secondResult = new AtomicReference<>();
+        limiter.limit(Mono.fromCallable(() -> {
+            secondStarted.set(true);
+            return "second";
+        }), "bob").subscribe(secondResult::set);
+
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getWaiting()).isEqualTo(1);
+        assertThat(secondStarted).isFalse();
+
+        first.tryEmitValue("first");
+
+        assertThat(firstResult.get()).isEqualTo("first");
+        assertThat(secondStarted).isTrue();
+        assertThat(secondResult.get()).isEqualTo("second");
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getWaiting()).isZero();
+    }
+
+    @Test
+    void servesWaitingUsersInRotation() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9, NO_LATENCY_LIMIT_MS, 10, 10_000);
+        Sinks.One<String> running = Sinks.one();
+        limiter.limit(running.asMono(), "alice").subscribe();
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        limiter.limit(Mono.fromCallable(() -> order.add("alice-1")), "alice").subscribe();
+        limiter.limit(Mono.fromCallable(() -> order.add("alice-2")), "alice").subscribe();
+        limiter.limit(Mono.fromCallable(() -> order.add("bob-1")), "bob").subscribe();
+        assertThat(limiter.getWaiting()).isEqualTo(3);
+
+        running.tryEmitValue("done");
+
+        assertThat(order).containsExactly("alice-1", "bob-1", "alice-2");
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void cancelledWaiterLeavesQueueWithoutTakingPermit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9, NO_LATENCY_LIMIT_MS, 10, 10_000);
+        Sinks.One<String> running = Sinks.one();
+        limiter.limit(running.asMono(), "alice").subscribe();
+
+        AtomicBoolean cancelledStarted = new AtomicBoolean();
+        Disposable waiter = limiter.limit(Mono.fromCallable(() -> {
+            cancelledStarted.set(true);
+            return "cancelled";
+        }), "bob").subscribe();
+        assertThat(limiter.getWaiting()).isEqualTo(1);
+
+        waiter.dispose();
+        assertThat(limiter.getWaiting()).isZero();
+
+        running.tryEmitValue("done");
+        assertThat(cancelledStarted).isFalse();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void cancellingRunningCallHandsPermitToWaiter() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9, NO_LATENCY_LIMIT_MS, 10, 10_000);
+        Disposable running = limiter.limit(Sinks.<String>one().asMono(), "alice").subscribe();
+
+        Sinks.One<String> next = Sinks.one();
+        AtomicBoolean nextStarted = new AtomicBoolean();
+        limiter.limit(next.asMono().doOnSubscribe(s -> nextStarted.set(true)), "bob").subscribe();
+        assertThat(nextStarted).isFalse();
+
+        running.dispose();
+
+        assertThat(nextStarted).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getWaiting()).isZero();
+
+        next.tryEmitValue("done");
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void concurrentCancellationDoesNotLeakPermits() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2, 2, 0.9, NO_LATENCY_LIMIT_MS, 10_000, 10_000);
+        int threads = 8;
+        int callsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Disposable> survivors = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String userKey = "user-" + (t % 3);
+            executor.execute(() -> {
+                try {
+                    List<Disposable> mine = new ArrayList<>();
+                    for (int i = 0; i < callsPerThread; i++) {
+                        Mono<String> call = Mono.delay(Duration.ofNanos(ThreadLocalRandom.current().nextInt(50_000)))
+                                .map(tick -> "ok");
+                        mine.add(limiter.limit(call, userKey).subscribe());
+                        // 随机取消之前的调用，可能正在排队、刚被分配许可或正在执行
+                        if (ThreadLocalRandom.current().nextBoolean()) {
+                            mine.remove(ThreadLocalRandom.current().nextInt(mine.size())).dispose();
+                        }
+                    }
+                    survivors.addAll(mine);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        survivors.forEach(Disposable::dispose);
+
+        // 自然完成的调用在定时线程上归还许可，等待其结束
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((limiter.getInFlight() != 0 || limiter.getWaiting() != 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getWaiting()).isZero();
+    }
+
+    @Test
+    void timesOutWaiterAndRemovesItFromQueue() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9, NO_LATENCY_LIMIT_MS, 10, 50);
+        limiter.limit(Sinks.<String>one().asMono(), "alice").subscribe();
+
+        assertThatThrownBy(() -> limiter.limit(Mono.just("late"), "bob").block(Duration.ofSeconds(5)))
+                .isInstanceOf(AIServiceUnavailableException.class)
+                .hasMessageContaining("等待超时");
+        assertThat(limiter.getWaiting()).isZero();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9, NO_LATENCY_LIMIT_MS, 1, 10_000);
+        limiter.limit(Sinks.<String>one().asMono(), "alice").subscribe();
+        limiter.limit(Sinks.<String>one().asMono(), "alice").subscribe();
+
+        assertThatThrownBy(() -> limiter.limit(Mono.just("rejected"), "bob").block(Duration.ofSeconds(5)))
+                .isInstanceOf(AIServiceUnavailableException.class)
+                .hasMessageContaining("等待队列已满");
+        assertThat(limiter.getWaiting()).isEqualTo(1);
+    }
+
+    @Test
+    void increasesLimitOnSuccessNearLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10, 0.5, NO_LATENCY_LIMIT_MS, 10, 10_000);
+        Sinks.One<String> first = Sinks.one();
+        Sinks.One<String> second = Sinks.one();
+        limiter.limit(first.asMono(), "alice").subscribe();
+        limiter.limit(second.asMono(), "bob").subscribe();
+
+        first.tryEmitValue("ok");
+        assertThat(limiter.getLimit()).isEqualTo(3);
+
+        // 在途调用不足上限的一半时不再增加
+        second.tryEmitValue("ok");
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void decreasesLimitOnUpstreamFailure() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 10, 0.5, NO_LATENCY_LIMIT_MS, 10, 10_000);
+
+        limiter.limit(Mono.error(new TimeoutException()), "alice").onErrorResume(e -> Mono.empty()).block();
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        limiter.limit(Mono.error(new TimeoutException()), "alice").onErrorResume(e -> Mono.empty()).block();
+        limiter.limit(Mono.error(new TimeoutException()), "alice").onErrorResume(e -> Mono.empty()).block();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void decreasesLimitOnSlowSuccess() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 1, 10, 0.5, 0, 10, 10_000);
+
+        limiter.limit(Mono.delay(Duration.ofMillis(5)).map(tick -> "slow"), "alice").block(Duration.ofSeconds(5));
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void keepsLimitOnCallerError() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 1, 20, 0.5, NO_LATENCY_LIMIT_MS, 10, 10_000);
+
+        limiter.limit(Mono.error(new IllegalArgumentException("bad request")), "alice")
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                                      long latencyThresholdMs, int maxQueueSize, long maxWaitMs) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, latencyThresholdMs,
+                maxQueueSize, maxWaitMs);
+    }
+}
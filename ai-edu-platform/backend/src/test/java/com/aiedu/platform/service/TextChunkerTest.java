@@ -0,0 +1,155 @@
+package com.aiedu.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class TextChunkerTest {
+
+    private final List<String> contents = new ArrayList<>();
+
+    private final List<Integer> pages = new ArrayList<>();
+
+    @Test
+    void splitsAtChunkSizeWithOverlapWhenNoBreakPoint() {
+        TextChunker chunker = chunker(10, 3);
+
+        chunker.append("abcdefghijklmnopqrstuvwxyz", 1);
+        chunker.finish();
+
+        assertThat(contents).containsExactly("abcdefghij", "hijklmnopq", "opqrstuvwx", "vwxyz");
+    }
+
+    @Test
+    void prefersParagraphEndOverLaterSentenceEnd() {
+        TextChunker chunker = chunker(10, 2);
+
+        chunker.append("abcdefgh\n。xyzuvw", 1);
+        chunker.finish();
+
+        assertThat(contents.get(0)).isEqualTo("abcdefgh");
+    }
+
+    @Test
+    void breaksAtSentenceEndWithinLastFifth() {
+        TextChunker chunker = chunker(10, 2);
+
+        chunker.append("abcdefgh。ijklmnop", 1);
+        chunker.finish();
+
+        assertThat(contents.get(0)).isEqualTo("abcdefgh。");
+        // 下一块从切分位置之前的overlap个字符开始
+        assertThat(contents.get(1)).startsWith("h。");
+    }
+
+    @Test
+    void ignoresBreakPointsBeforeLastFifth() {
+        TextChunker chunker = chunker(10, 2);
+
+        chunker.append("abc\ndefghijklmnop", 1);
+        chunker.finish();
+
+        assertThat(contents.get(0)).isEqualTo("abc\ndefghi");
+    }
+
+    @Test
+    void reportsPageWhereChunkStartsAcrossPageBoundary() {
+        TextChunker chunker = chunker(10, 4);
+
+        chunker.append("aaaaaaaa", 1);
+        chunker.append("bbbbbbbbbbbb", 2);
+        chunker.finish();
+
+        assertThat(chunks()).containsExactly(
+                tuple("aaaaaaaabb", 1),
+                tuple("aabbbbbbbb", 1),
+                tuple("bbbbbbbb", 2));
+    }
+
+    @Test
+    void overlapFromPreviousPageKeepsItsPage() {
+        TextChunker chunker = chunker(10, 4);
+
+        chunker.append("aaaaaaaaaa", 1);
+        chunker.append("bbbbbb", 2);
+        chunker.append("cccccc", 3);
+        chunker.finish();
+
+        assertThat(chunks()).containsExactly(
+                tuple("aaaaaaaaaa", 1),
+                tuple("aaaabbbbbb", 1),
+                tuple("bbbbcccccc", 2));
+    }
+
+    @Test
+    void dropsPagesThatLeftTheBuffer() {
+        TextChunker chunker = chunker(10, 2);
+
+        chunker.append("aaa", 1);
+        chunker.append("bbb", 2);
+        chunker.append("cccccccccccc", 3);
+        chunker.finish();
+
+        assertThat(chunks()).containsExactly(
+                tuple("aaabbbcccc", 1),
+                tuple("cccccccccc", 3));
+    }
+
+    @Test
+    void emitsTailShorterThanOverlapTogetherWithOverlap() {
+        TextChunker chunker = chunker(10, 4);
+
+        chunker.append("abcdefghijkl", 1);
+        chunker.finish();
+
+        assertThat(contents).containsExactly("abcdefghij", "ghijkl");
+    }
+
+    @Test
+    void doesNotRepeatOverlapWhenNothingFollows() {
+        TextChunker chunker = chunker(10, 4);
+
+        chunker.append("abcdefghij", 1);
+        chunker.finish();
+
+        assertThat(contents).containsExactly("abcdefghij");
+    }
+
+    @Test
+    void emitsShortTextOnFinishAndSkipsBlankChunks() {
+        TextChunker chunker = chunker(10, 4);
+
+        chunker.append("  hello\r\n", 1);
+        chunker.finish();
+        chunker.append("   ", 2);
+        chunker.finish();
+
+        assertThat(chunks()).containsExactly(tuple("hello", 1));
+    }
+
+    @Test
+    void rejectsOverlapNotSmallerThanChunkSize() {
+        assertThatThrownBy(() -> chunker(10, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> chunker(0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private TextChunker chunker(int chunkSize, int overlap) {
+        return new TextChunker(chunkSize, overlap, (content, page) -> {
+            contents.add(content);
+            pages.add(page);
+        });
+    }
+
+    private List<org.assertj.core.groups.Tuple> chunks() {
+        List<org.assertj.core.groups.Tuple> chunks = new ArrayList<>();
+        for (int i = 0; i < contents.size(); i++) {
+            chunks.add(tuple(contents.get(i), pages.get(i)));
+        }
+        return chunks;
+    }
+}
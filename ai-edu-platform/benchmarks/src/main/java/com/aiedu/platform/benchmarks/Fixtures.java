@@ -0,0 +1,91 @@
+package com.aiedu.platform.benchmarks;
+
+import com.aiedu.platform.model.LessonPlan;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试共用的测试数据
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * 构建一份内容接近真实AI生成结果的教案
+     * @return 教案
+     */
+    static LessonPlan lessonPlan() {
+        LessonPlan lessonPlan = new LessonPlan();
+        lessonPlan.setId(1L);
+        lessonPlan.setTitle("一元二次方程的解法");
+        lessonPlan.setGrade("九年级");
+        lessonPlan.setModule("代数");
+        lessonPlan.setKnowledgePoint("配方法与公式法");
+        lessonPlan.setDuration(45);
+        lessonPlan.setObjectivesList(mapList(3, "type", "description"));
+        lessonPlan.setKeyPointsList(stringList(4, "教学重点"));
+        lessonPlan.setDifficultPointsList(stringList(3, "教学难点"));
+        lessonPlan.setResourcesList(mapList(4, "name", "url"));
+        lessonPlan.setTeachingProcessList(teachingProcess(6));
+        lessonPlan.setEvaluation("通过课堂练习和小组讨论评价学生对配方法和公式法的掌握情况。");
+        lessonPlan.setExtension("课后探究：用几何方法解释配方法的含义。");
+        lessonPlan.setCreatedAt(LocalDateTime.now());
+        lessonPlan.setUpdatedAt(LocalDateTime.now());
+        return lessonPlan;
+    }
+
+    static List<String> stringList(int size, String prefix) {
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(prefix + i + "：理解并能够运用相关概念解决实际问题");
+        }
+        return list;
+    }
+
+    static List<Map<String, String>> mapList(int size, String key, String value) {
+        List<Map<String, String>> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, String> item = new HashMap<>();
+            item.put(key, key + i);
+            item.put(value, "能够通过观察、分析和归纳，掌握" + value + i + "的基本方法");
+            list.add(item);
+        }
+        return list;
+    }
+
+    static List<Map<String, Object>> teachingProcess(int steps) {
+        List<Map<String, Object>> process = new ArrayList<>(steps);
+        for (int i = 0; i < steps; i++) {
+            Map<String, Object> step = new HashMap<>();
+            step.put("stage", "环节" + i);
+            step.put("duration", 5 + i);
+            step.put("activities", stringList(3, "教师活动"));
+            step.put("design", "设计意图：通过问题情境引导学生主动思考，体会数学建模的过程。");
+            process.add(step);
+        }
+        return process;
+    }
+
+    /**
+     * 给没有setter的字段赋值，用于在没有Spring容器时初始化组件
+     * @param target 对象
+     * @param name 字段名
+     * @param value 值
+     */
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
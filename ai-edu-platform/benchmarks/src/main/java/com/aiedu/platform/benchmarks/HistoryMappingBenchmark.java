@@ -0,0 +1,142 @@
+package com.aiedu.platform.benchmarks;
+
+import com.aiedu.platform.model.Conversation;
+import com.aiedu.platform.model.Message;
+import com.aiedu.platform.payload.response.ChatResponse;
+import com.aiedu.platform.service.ConversationHistoryService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每轮对话构建历史窗口（ConversationHistoryService的token裁剪、摘要追加和映射）以及序列化为AI服务请求体的开销
+ * 窗口大小和预算与application.properties中chat.history的默认值一致，数据库查询不计入。
+ * 数据库只返回最近max-messages条消息，因此对话超过窗口后buildHistory的开销不再随对话长度增长；
+ * buildHistoryFromWholeConversation把对话的全部消息交给token裁剪和映射，作为没有消息数窗口时的对照
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryMappingBenchmark {
+
+    private static final int MAX_MESSAGES = 20;
+
+    private static final int MAX_TOKENS = 4000;
+
+    private static final int SUMMARY_MAX_CHARS = 1500;
+
+    private static final int SUMMARY_SNIPPET_CHARS = 120;
+
+    // 每轮对话滚出窗口的消息数（一问一答）
+    private static final int EVICTED_PER_TURN = 2;
+
+    /**
+     * 对话中已保存的消息数
+     */
+    @Param({"10", "100", "1000"})
+    public int conversationMessages;
+
+    /**
+     * 每条消息的字符数，长消息会触发token预算裁剪
+     */
+    @Param({"40", "400", "2000"})
+    public int messageChars;
+
+    // 对话的全部消息（按时间升序排列）
+    private List<Message> all;
+
+    // 数据库返回的最近消息（已按时间升序排列），本轮的用户消息尚未保存
+    private List<Message> stored;
+
+    private Message pending;
+
+    private List<Message> evicted;
+
+    private String summary;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        Conversation conversation = new Conversation();
+        conversation.setId(1L);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+
+        all = new ArrayList<>(conversationMessages);
+        for (int i = 0; i < conversationMessages; i++) {
+            all.add(message(conversation, i, start));
+        }
+        // 与ConversationHistoryService一致：本轮用户消息占窗口的一条，之前滚出窗口的消息追加到摘要
+        int windowStart = Math.max(0, conversationMessages - (MAX_MESSAGES - 1));
+        stored = new ArrayList<>(all.subList(windowStart, conversationMessages));
+        evicted = new ArrayList<>(all.subList(Math.max(0, windowStart - EVICTED_PER_TURN), windowStart));
+        pending = message(conversation, conversationMessages, start);
+        pending.setMessageOrder(null);
+
+        StringBuilder previous = new StringBuilder();
+        while (previous.length() < SUMMARY_MAX_CHARS) {
+            previous.append("学生: 请解释一下一元二次方程的求根公式\nAI: 可以从配方法开始推导\n");
+        }
+        // 消息全部在窗口内的对话还没有摘要
+        summary = windowStart > 0 ? previous.substring(0, SUMMARY_MAX_CHARS) : null;
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<ChatResponse.MessageDto> buildHistory() {
+        List<Message> recent = new ArrayList<>(stored);
+        recent.add(pending);
+
+        ConversationHistoryService.Window window = ConversationHistoryService.trimToBudget(recent, MAX_TOKENS);
+        String updated = ConversationHistoryService.appendSummary(summary, evicted,
+                SUMMARY_SNIPPET_CHARS, SUMMARY_MAX_CHARS);
+        return ConversationHistoryService.toHistory(window.getMessages(), updated);
+    }
+
+    @Benchmark
+    public List<ChatResponse.MessageDto> buildHistoryFromWholeConversation() {
+        List<Message> messages = new ArrayList<>(all);
+        messages.add(pending);
+
+        ConversationHistoryService.Window window = ConversationHistoryService.trimToBudget(messages, MAX_TOKENS);
+        return ConversationHistoryService.toHistory(window.getMessages(), null);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeRequest() throws JsonProcessingException {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("history", buildHistory());
+        requestBody.put("message", pending.getContent());
+        return objectMapper.writeValueAsBytes(requestBody);
+    }
+
+    private Message message(Conversation conversation, int index, LocalDateTime start) {
+        String prefix = "第" + index + "条消息：";
+        StringBuilder content = new StringBuilder(prefix);
+        while (content.length() < messageChars) {
+            content.append("请解释一下一元二次方程的求根公式是如何推导出来的，并给出一个例子。");
+        }
+        content.setLength(Math.max(prefix.length(), messageChars));
+
+        Message message = new Message();
+        message.setId((long) index);
+        message.setConversation(conversation);
+        message.setSender(index % 2 == 0 ? "user" : "ai");
+        message.setContent(content.toString());
+        message.setMessageOrder(index + 1);
+        message.setCreatedAt(start.plusSeconds(index));
+        return message;
+    }
+}
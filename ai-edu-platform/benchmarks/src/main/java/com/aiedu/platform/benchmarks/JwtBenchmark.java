@@ -0,0 +1,83 @@
+package com.aiedu.platform.benchmarks;
+
+import com.aiedu.platform.security.jwt.JwtUtils;
+import com.aiedu.platform.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT生成和验证开销，uncached为每次都做签名校验和解析，cached为命中已验证令牌缓存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtBenchmark {
+
+    private JwtUtils cachedJwtUtils;
+
+    private JwtUtils uncachedJwtUtils;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedJwtUtils = newJwtUtils(300);
+        // 过期时间为0的缓存不会命中
+        uncachedJwtUtils = newJwtUtils(0);
+
+        List<GrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_TEACHER"));
+        UserDetailsImpl principal = new UserDetailsImpl(1L, "teacher", "teacher@example.com", null, authorities);
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        token = cachedJwtUtils.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public String generate() {
+        return cachedJwtUtils.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public Object validateUncached() {
+        return uncachedJwtUtils.getVerifiedClaims(token);
+    }
+
+    @Benchmark
+    public Object validateCached() {
+        return cachedJwtUtils.getVerifiedClaims(token);
+    }
+
+    @Benchmark
+    public Object validateAndBuildPrincipal() {
+        return uncachedJwtUtils.getUserDetailsFromClaims(uncachedJwtUtils.getVerifiedClaims(token));
+    }
+
+    private static JwtUtils newJwtUtils(long cacheTtlSeconds) {
+        // HS512要求至少512位的密钥
+        byte[] key = new byte[64];
+        Arrays.fill(key, (byte) 'k');
+
+        JwtUtils jwtUtils = new JwtUtils();
+        Fixtures.setField(jwtUtils, "jwtSecret", Base64.getEncoder().encodeToString(key));
+        Fixtures.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        Fixtures.setField(jwtUtils, "verifiedCacheMaxSize", 10000L);
+        Fixtures.setField(jwtUtils, "verifiedCacheTtlSeconds", cacheTtlSeconds);
+        Fixtures.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+        return jwtUtils;
+    }
+}
@@ -0,0 +1,74 @@
+package com.aiedu.platform.benchmarks;
+
+import com.aiedu.platform.model.LessonPlan;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LessonPlan JSON字段的读写开销
+ * cold表示从数据库加载后第一次读取（需要解析JSON），warm表示已解析后的重复读取
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LessonPlanJsonBenchmark {
+
+    private LessonPlan source;
+
+    private LessonPlan warm;
+
+    private List<Map<String, String>> objectives;
+
+    private List<Map<String, Object>> teachingProcess;
+
+    @Setup
+    public void setUp() {
+        source = Fixtures.lessonPlan();
+        warm = Fixtures.lessonPlan();
+        warm.getObjectivesList();
+        warm.getTeachingProcessList();
+        objectives = source.getObjectivesList();
+        teachingProcess = source.getTeachingProcessList();
+    }
+
+    @Benchmark
+    public void gettersCold(Blackhole blackhole) {
+        // 与Hibernate加载实体一样只设置原始JSON字段
+        LessonPlan loaded = new LessonPlan();
+        loaded.setObjectives(source.getObjectives());
+        loaded.setKeyPoints(source.getKeyPoints());
+        loaded.setDifficultPoints(source.getDifficultPoints());
+        loaded.setResources(source.getResources());
+        loaded.setTeachingProcess(source.getTeachingProcess());
+
+        blackhole.consume(loaded.getObjectivesList());
+        blackhole.consume(loaded.getKeyPointsList());
+        blackhole.consume(loaded.getDifficultPointsList());
+        blackhole.consume(loaded.getResourcesList());
+        blackhole.consume(loaded.getTeachingProcessList());
+    }
+
+    @Benchmark
+    public void gettersWarm(Blackhole blackhole) {
+        blackhole.consume(warm.getObjectivesList());
+        blackhole.consume(warm.getKeyPointsList());
+        blackhole.consume(warm.getDifficultPointsList());
+        blackhole.consume(warm.getResourcesList());
+        blackhole.consume(warm.getTeachingProcessList());
+    }
+
+    @Benchmark
+    public LessonPlan setters() {
+        LessonPlan lessonPlan = new LessonPlan();
+        lessonPlan.setObjectivesList(objectives);
+        lessonPlan.setTeachingProcessList(teachingProcess);
+        return lessonPlan;
+    }
+}
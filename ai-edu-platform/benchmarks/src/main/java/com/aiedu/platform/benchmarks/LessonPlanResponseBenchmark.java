@@ -0,0 +1,74 @@
+package com.aiedu.platform.benchmarks;
+
+import com.aiedu.platform.model.LessonPlan;
+import com.aiedu.platform.payload.response.LessonPlanResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 教案列表接口的响应构建和序列化开销，模拟从数据库加载的教案（JSON字段尚未解析）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LessonPlanResponseBenchmark {
+
+    @Param({"1", "200"})
+    public int planCount;
+
+    private LessonPlan template;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        template = Fixtures.lessonPlan();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<LessonPlanResponse> buildResponses() {
+        return loadPlans().stream()
+                .map(LessonPlanResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(buildResponses());
+    }
+
+    private List<LessonPlan> loadPlans() {
+        List<LessonPlan> plans = new ArrayList<>(planCount);
+        for (int i = 0; i < planCount; i++) {
+            LessonPlan loaded = new LessonPlan();
+            loaded.setId((long) i);
+            loaded.setTitle(template.getTitle());
+            loaded.setGrade(template.getGrade());
+            loaded.setModule(template.getModule());
+            loaded.setKnowledgePoint(template.getKnowledgePoint());
+            loaded.setDuration(template.getDuration());
+            loaded.setObjectives(template.getObjectives());
+            loaded.setKeyPoints(template.getKeyPoints());
+            loaded.setDifficultPoints(template.getDifficultPoints());
+            loaded.setResources(template.getResources());
+            loaded.setTeachingProcess(template.getTeachingProcess());
+            loaded.setEvaluation(template.getEvaluation());
+            loaded.setExtension(template.getExtension());
+            loaded.setCreatedAt(template.getCreatedAt());
+            loaded.setUpdatedAt(template.getUpdatedAt());
+            plans.add(loaded);
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,60 @@
+package com.aiedu.platform.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 对数正态延迟分布，由中位数和P99确定，用于模拟LLM响应时间的长尾
+ */
+final class LatencyDistribution {
+
+    /** 标准正态分布的99%分位数 */
+    private static final double Z_99 = 2.326;
+
+    private final double median;
+
+    private final double sigma;
+
+    private final long maxMillis;
+
+    /**
+     * @param medianMillis 中位数延迟
+     * @param p99Millis P99延迟，不小于中位数
+     * @param maxMillis 最大延迟，超出的采样值会被截断
+     */
+    LatencyDistribution(long medianMillis, long p99Millis, long maxMillis) {
+        if (medianMillis <= 0) {
+            throw new IllegalArgumentException("中位数延迟必须大于0");
+        }
+        this.median = medianMillis;
+        this.sigma = Math.log((double) Math.max(p99Millis, medianMillis) / medianMillis) / Z_99;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * 从系统属性读取分布参数，属性名为 prefix.median-ms、prefix.p99-ms 和 prefix.max-ms
+     * @param prefix 属性前缀
+     * @param medianMillis 默认中位数
+     * @param p99Millis 默认P99
+     * @return 延迟分布
+     */
+    static LatencyDistribution fromSettings(String prefix, long medianMillis, long p99Millis) {
+        long median = Settings.longValue(prefix + ".median-ms", medianMillis);
+        long p99 = Settings.longValue(prefix + ".p99-ms", p99Millis);
+        long max = Settings.longValue(prefix + ".max-ms", p99 * 3);
+        return new LatencyDistribution(median, p99, max);
+    }
+
+    /**
+     * 采样一次延迟
+     * @return 延迟毫秒数
+     */
+    long sample() {
+        double value = median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        return Math.min((long) value, maxMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("median=%.0fms p99=%.0fms max=%dms", median, median * Math.exp(sigma * Z_99), maxMillis);
+    }
+}
@@ -0,0 +1,109 @@
+package com.aiedu.platform.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 记录单个步骤的耗时和错误数，压测结束后计算分位数
+ * 每个步骤的样本量为几万到几十万，直接保存原始值并在汇总时排序
+ */
+final class LatencyRecorder {
+
+    private final String name;
+
+    private long[] samples = new long[1024];
+
+    private int count;
+
+    private long errors;
+
+    private long degraded;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次成功请求
+     * @param micros 耗时（微秒）
+     */
+    synchronized void record(long micros) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = micros;
+    }
+
+    /**
+     * 记录一次失败请求（非2xx响应或连接异常）
+     */
+    synchronized void recordError() {
+        errors++;
+    }
+
+    /**
+     * 记录一次降级响应（HTTP成功但返回的是兜底回复）
+     */
+    synchronized void recordDegraded() {
+        degraded++;
+    }
+
+    /**
+     * 计算汇总统计
+     * @param elapsedSeconds 压测持续时间
+     * @return 统计结果
+     */
+    synchronized Summary summarize(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(name, count, errors, degraded, count / elapsedSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.95),
+                percentile(sorted, 0.99), count == 0 ? 0 : sorted[count - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * 单个步骤的统计结果，耗时单位为微秒
+     */
+    static final class Summary {
+        final String name;
+        final long count;
+        final long errors;
+        final long degraded;
+        final double throughput;
+        final long p50;
+        final long p90;
+        final long p95;
+        final long p99;
+        final long max;
+
+        Summary(String name, long count, long errors, long degraded, double throughput,
+                long p50, long p90, long p95, long p99, long max) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.degraded = degraded;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        double errorRate() {
+            long total = count + errors;
+            return total == 0 ? 0 : (double) errors / total;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.aiedu.platform.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测驱动
+ * 每个虚拟用户注册一次，然后循环执行：登录 → 创建对话 → 多轮对话（部分轮次使用流式接口）→ 教师生成教案
+ * 压测结束后输出每个步骤的吞吐量和延迟分位数，超过阈值时以非零状态码退出，便于在部署前的流水线中拦截性能回退
+ *
+ * 运行：java -Dloadtest.users=50 -Dloadtest.duration-seconds=120 -jar target/loadtest.jar
+ */
+public class LoadTestDriver {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 后端在AI服务失败时返回的兜底回复前缀 */
+    private static final String FALLBACK_PREFIX = "抱歉";
+
+    private static final String[] QUESTIONS = {
+            "一元二次方程的求根公式是怎么推导的？",
+            "能举一个配方法的例子吗？",
+            "判别式小于零说明什么？",
+            "勾股定理有哪些证明方法？",
+            "函数的单调性怎么判断？",
+            "请帮我出三道练习题。",
+            "这道题我做错了，错在哪里？"
+    };
+
+    private static final String[] KNOWLEDGE_POINTS = {
+            "一元二次方程", "勾股定理", "相似三角形", "二次函数", "概率初步",
+            "有理数运算", "整式乘法", "平行四边形", "一次函数", "统计与调查"
+    };
+
+    private final String baseUrl;
+
+    private final int users;
+
+    private final long durationMillis;
+
+    private final long rampUpMillis;
+
+    private final int turns;
+
+    private final double streamRatio;
+
+    private final double teacherRatio;
+
+    private final long thinkTimeMillis;
+
+    private final String password;
+
+    private final String runId;
+
+    private final HttpClient httpClient;
+
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+
+    public LoadTestDriver() {
+        this.baseUrl = Settings.string("loadtest.base-url", "http://localhost:8080/api/api");
+        this.users = Settings.intValue("loadtest.users", 20);
+        this.durationMillis = TimeUnit.SECONDS.toMillis(Settings.longValue("loadtest.duration-seconds", 60));
+        this.rampUpMillis = TimeUnit.SECONDS.toMillis(Settings.longValue("loadtest.ramp-up-seconds", 10));
+        this.turns = Settings.intValue("loadtest.turns", 5);
+        this.streamRatio = Settings.doubleValue("loadtest.stream-ratio", 0.3);
+        this.teacherRatio = Settings.doubleValue("loadtest.teacher-ratio", 0.3);
+        this.thinkTimeMillis = Settings.longValue("loadtest.think-time-ms", 1000);
+        this.password = Settings.string("loadtest.password", "loadtest123");
+        this.runId = Settings.string("loadtest.run-id", Long.toString(System.currentTimeMillis() % 1_000_000, 36));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+
+        for (String step : new String[]{"signup", "signin", "create_conversation", "chat",
+                "chat_stream_first_chunk", "chat_stream", "generate_lesson_plan"}) {
+            recorders.put(step, new LatencyRecorder(step));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        StubAIServer stub = null;
+        if (Boolean.parseBoolean(Settings.string("loadtest.embedded-stub", "false"))) {
+            stub = new StubAIServer(Settings.intValue("stub.port", 8090));
+            stub.start();
+        }
+        try {
+            LoadTestDriver driver = new LoadTestDriver();
+            List<LatencyRecorder.Summary> summaries = driver.run();
+            System.exit(driver.checkThresholds(summaries) ? 0 : 1);
+        } finally {
+            if (stub != null) {
+                stub.stop();
+            }
+        }
+    }
+
+    /**
+     * 执行压测并打印报告
+     * @return 每个步骤的统计结果
+     */
+    public List<LatencyRecorder.Summary> run() throws InterruptedException {
+        System.out.printf("开始压测: base-url=%s users=%d duration=%ds ramp-up=%ds turns=%d run-id=%s%n",
+                baseUrl, users, durationMillis / 1000, rampUpMillis / 1000, turns, runId);
+
+        long start = System.currentTimeMillis();
+        long deadline = start + rampUpMillis + durationMillis;
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            int userIndex = i;
+            long startDelay = users > 1 ? rampUpMillis * i / (users - 1) : 0;
+            pool.submit(() -> runVirtualUser(userIndex, startDelay, deadline));
+        }
+        pool.shutdown();
+        // 正在进行的会话在截止时间后最多再等待一轮请求的超时
+        if (!pool.awaitTermination(rampUpMillis + durationMillis + TimeUnit.MINUTES.toMillis(3), TimeUnit.MILLISECONDS)) {
+            pool.shutdownNow();
+        }
+
+        double elapsedSeconds = (System.currentTimeMillis() - start) / 1000.0;
+        List<LatencyRecorder.Summary> summaries = new ArrayList<>();
+        for (LatencyRecorder recorder : recorders.values()) {
+            summaries.add(recorder.summarize(elapsedSeconds));
+        }
+        printReport(summaries, elapsedSeconds);
+        return summaries;
+    }
+
+    private void runVirtualUser(int userIndex, long startDelay, long deadline) {
+        try {
+            Thread.sleep(startDelay);
+            boolean teacher = userIndex < Math.round(users * teacherRatio);
+            String username = "lt" + runId + "u" + userIndex;
+            if (!signup(username, teacher)) {
+                return;
+            }
+            while (System.currentTimeMillis() < deadline) {
+                runSession(username, teacher, deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一次完整的用户会话，任一步骤失败时结束本次会话
+     */
+    private void runSession(String username, boolean teacher, long deadline) throws InterruptedException {
+        String token = signin(username);
+        if (token == null) {
+            think();
+            return;
+        }
+        Long conversationId = createConversation(token);
+        if (conversationId == null) {
+            think();
+            return;
+        }
+        for (int turn = 0; turn < turns && System.currentTimeMillis() < deadline; turn++) {
+            String question = QUESTIONS[ThreadLocalRandom.current().nextInt(QUESTIONS.length)];
+            boolean ok = ThreadLocalRandom.current().nextDouble() < streamRatio
+                    ? chatStream(token, conversationId, question)
+                    : chat(token, conversationId, question);
+            think();
+            if (!ok) {
+                return;
+            }
+        }
+        if (teacher && System.currentTimeMillis() < deadline) {
+            generateLessonPlan(token);
+            think();
+        }
+    }
+
+    private boolean signup(String username, boolean teacher) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("username", username);
+        body.put("email", username + "@loadtest.local");
+        body.put("password", password);
+        body.put("roles", List.of(teacher ? "teacher" : "student"));
+        return post("signup", "/auth/signup", null, body) != null;
+    }
+
+    private String signin(String username) {
+        JsonNode response = post("signin", "/auth/signin", null, Map.of("username", username, "password", password));
+        return response == null ? null : response.path("accessToken").asText(null);
+    }
+
+    private Long createConversation(String token) {
+        String title = URLEncoder.encode("压测对话", StandardCharsets.UTF_8);
+        JsonNode response = post("create_conversation", "/chat/conversations?title=" + title, token, null);
+        return response == null || !response.hasNonNull("id") ? null : response.get("id").asLong();
+    }
+
+    private boolean chat(String token, Long conversationId, String question) {
+        JsonNode response = post("chat", "/chat/conversations/" + conversationId + "/messages",
+                token, Map.of("content", question));
+        if (response == null) {
+            return false;
+        }
+        if (response.path("content").asText("").startsWith(FALLBACK_PREFIX)) {
+            recorders.get("chat").recordDegraded();
+        }
+        return true;
+    }
+
+    /**
+     * 流式对话，分别记录首个片段的到达时间和收到"done"事件的总耗时
+     */
+    private boolean chatStream(String token, Long conversationId, String question) {
+        LatencyRecorder firstChunk = recorders.get("chat_stream_first_chunk");
+        LatencyRecorder total = recorders.get("chat_stream");
+        HttpRequest request = requestBuilder("/chat/conversations/" + conversationId + "/messages/stream", token)
+                .header("Accept", "text/event-stream")
+                .POST(jsonBody(Map.of("content", question)))
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<java.io.InputStream> response =
+                    httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() / 100 != 2) {
+                response.body().close();
+                total.recordError();
+                return false;
+            }
+            String event = null;
+            boolean firstSeen = false;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("event:")) {
+                        event = line.substring("event:".length()).trim();
+                    } else if (line.startsWith("data:")) {
+                        if ("message".equals(event) && !firstSeen) {
+                            firstSeen = true;
+                            firstChunk.record(micros(start));
+                        } else if ("done".equals(event)) {
+                            total.record(micros(start));
+                            return true;
+                        } else if ("error".equals(event)) {
+                            total.recordError();
+                            return false;
+                        }
+                    }
+                }
+            }
+            // 连接在"done"事件之前关闭
+            total.recordError();
+            return false;
+        } catch (IOException e) {
+            total.recordError();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void generateLessonPlan(String token) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("grade", "九年级");
+        body.put("module", "数学");
+        body.put("knowledgePoint", KNOWLEDGE_POINTS[ThreadLocalRandom.current().nextInt(KNOWLEDGE_POINTS.length)]);
+        body.put("duration", 45);
+        body.put("preferences", List.of("探究式"));
+        post("generate_lesson_plan", "/lesson-plans/generate", token, body);
+    }
+
+    /**
+     * 发送POST请求并记录耗时
+     * @param step 步骤名
+     * @param path 相对于base-url的路径
+     * @param token JWT令牌，可为null
+     * @param body 请求体，可为null
+     * @return 响应JSON，请求失败时返回null
+     */
+    private JsonNode post(String step, String path, String token, Object body) {
+        LatencyRecorder recorder = recorders.get(step);
+        HttpRequest request = requestBuilder(path, token)
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody() : jsonBody(body))
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() / 100 != 2) {
+                recorder.recordError();
+                return null;
+            }
+            recorder.record(micros(start));
+            return response.body().length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            recorder.recordError();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder requestBuilder(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofMinutes(3))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private static HttpRequest.BodyPublisher jsonBody(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void think() throws InterruptedException {
+        if (thinkTimeMillis > 0) {
+            Thread.sleep(thinkTimeMillis / 2 + ThreadLocalRandom.current().nextLong(thinkTimeMillis));
+        }
+    }
+
+    private static long micros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
+    private static void printReport(List<LatencyRecorder.Summary> summaries, double elapsedSeconds) {
+        System.out.printf("%n压测完成，耗时 %.1fs（延迟单位：毫秒）%n", elapsedSeconds);
+        System.out.printf("%-24s %8s %7s %8s %8s %8s %8s %8s %8s %8s %8s%n",
+                "step", "count", "errors", "degraded", "req/s", "p50", "p90", "p95", "p99", "max", "err%");
+        for (LatencyRecorder.Summary s : summaries) {
+            System.out.printf("%-24s %8d %7d %8d %8.2f %8.1f %8.1f %8.1f %8.1f %8.1f %7.2f%%%n",
+                    s.name, s.count, s.errors, s.degraded, s.throughput,
+                    s.p50 / 1000.0, s.p90 / 1000.0, s.p95 / 1000.0, s.p99 / 1000.0, s.max / 1000.0,
+                    s.errorRate() * 100);
+        }
+    }
+
+    /**
+     * 检查阈值：loadtest.max-error-rate 对所有步骤生效，
+     * loadtest.max-p99-ms.&lt;step&gt; 对指定步骤生效（例如 -Dloadtest.max-p99-ms.signin=500）
+     * @param summaries 统计结果
+     * @return 是否全部通过
+     */
+    boolean checkThresholds(List<LatencyRecorder.Summary> summaries) {
+        double maxErrorRate = Settings.doubleValue("loadtest.max-error-rate", 0.05);
+        boolean passed = true;
+        for (LatencyRecorder.Summary s : summaries) {
+            if (s.errorRate() > maxErrorRate) {
+                System.out.printf("未通过: %s 错误率 %.2f%% 超过 %.2f%%%n", s.name, s.errorRate() * 100, maxErrorRate * 100);
+                passed = false;
+            }
+            long maxP99 = Settings.longValue("loadtest.max-p99-ms." + s.name, -1);
+            if (maxP99 >= 0 && s.p99 / 1000 > maxP99) {
+                System.out.printf("未通过: %s P99 %dms 超过 %dms%n", s.name, s.p99 / 1000, maxP99);
+                passed = false;
+            }
+        }
+        System.out.println(passed ? "所有阈值检查通过" : "存在未通过的阈值检查");
+        return passed;
+    }
+}
@@ -0,0 +1,29 @@
+package com.aiedu.platform.loadtest;
+
+/**
+ * 从系统属性读取配置，例如 -Dloadtest.users=50
+ */
+final class Settings {
+
+    private Settings() {
+    }
+
+    static String string(String key, String defaultValue) {
+        return System.getProperty(key, defaultValue);
+    }
+
+    static int intValue(String key, int defaultValue) {
+        String value = System.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    static long longValue(String key, long defaultValue) {
+        String value = System.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    static double doubleValue(String key, double defaultValue) {
+        String value = System.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+}
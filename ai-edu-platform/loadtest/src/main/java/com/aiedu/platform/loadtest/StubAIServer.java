@@ -0,0 +1,220 @@
+package com.aiedu.platform.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地AI服务桩，实现后端调用的 /multi-agent/chat、/multi-agent/chat/stream
+ * 和 /single-agent/generate-lesson-plan 接口
+ * 响应延迟按对数正态分布采样，并可按比例返回503以验证重试、熔断和降级
+ *
+ * 启动：java -cp target/loadtest.jar com.aiedu.platform.loadtest.StubAIServer
+ * 后端以 loadtest 配置文件启动时会把AI服务地址指向 http://localhost:8090
+ */
+public class StubAIServer {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final LatencyDistribution chatLatency;
+
+    private final LatencyDistribution lessonPlanLatency;
+
+    private final double chatFailureRate;
+
+    private final double lessonPlanFailureRate;
+
+    private final int streamChunks;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    public StubAIServer(int port) throws IOException {
+        this.chatLatency = LatencyDistribution.fromSettings("stub.chat.latency", 800, 4000);
+        this.lessonPlanLatency = LatencyDistribution.fromSettings("stub.lesson-plan.latency", 5000, 20000);
+        this.chatFailureRate = Settings.doubleValue("stub.chat.failure-rate", 0.01);
+        this.lessonPlanFailureRate = Settings.doubleValue("stub.lesson-plan.failure-rate", 0.02);
+        this.streamChunks = Math.max(1, Settings.intValue("stub.stream.chunks", 20));
+
+        // 延迟通过sleep模拟，每个请求占用一个线程，与真实上游的长连接行为一致
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(port), Settings.intValue("stub.backlog", 1024));
+        this.server.setExecutor(executor);
+        this.server.createContext("/multi-agent/chat/stream", guarded(this::handleChatStream, chatLatency, chatFailureRate));
+        this.server.createContext("/multi-agent/chat", guarded(this::handleChat, chatLatency, chatFailureRate));
+        this.server.createContext("/single-agent/generate-lesson-plan",
+                guarded(this::handleLessonPlan, lessonPlanLatency, lessonPlanFailureRate));
+    }
+
+    public static void main(String[] args) throws IOException {
+        StubAIServer stub = new StubAIServer(Settings.intValue("stub.port", 8090));
+        stub.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::stop));
+    }
+
+    public void start() {
+        server.start();
+        System.out.printf("AI服务桩已启动: port=%d%n  chat: %s failure-rate=%.3f stream-chunks=%d%n"
+                        + "  lesson-plan: %s failure-rate=%.3f%n",
+                server.getAddress().getPort(), chatLatency, chatFailureRate, streamChunks,
+                lessonPlanLatency, lessonPlanFailureRate);
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        System.out.printf("AI服务桩已停止: requests=%d injected-failures=%d%n", requests.get(), failures.get());
+    }
+
+    /**
+     * 包装处理器：只接受POST，读取请求体，并按比例注入失败
+     * @param handler 处理器
+     * @param latency 接口的延迟分布，注入的失败按四分之一的延迟返回
+     * @param failureRate 失败比例
+     * @return 包装后的处理器
+     */
+    private HttpHandler guarded(StubHandler handler, LatencyDistribution latency, double failureRate) {
+        return exchange -> {
+            try {
+                requests.incrementAndGet();
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                Map<String, Object> requestBody = readBody(exchange.getRequestBody());
+                if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                    failures.incrementAndGet();
+                    // 失败的请求也有延迟，模拟上游过载时的慢失败
+                    sleep(latency.sample() / 4);
+                    writeJson(exchange, 503, Map.of("error", "stub injected failure"));
+                    return;
+                }
+                handler.handle(exchange, requestBody);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private void handleChat(HttpExchange exchange, Map<String, Object> requestBody)
+            throws IOException, InterruptedException {
+        sleep(chatLatency.sample());
+        writeJson(exchange, 200, Map.of("reply", reply(requestBody)));
+    }
+
+    /**
+     * 以SSE格式分段返回回复，总耗时服从chat延迟分布，首段在总耗时的五分之一后到达
+     */
+    private void handleChatStream(HttpExchange exchange, Map<String, Object> requestBody)
+            throws IOException, InterruptedException {
+        long total = chatLatency.sample();
+        long firstChunkDelay = total / 5;
+        long chunkInterval = streamChunks > 1 ? (total - firstChunkDelay) / (streamChunks - 1) : 0;
+        String reply = reply(requestBody);
+        int chunkSize = Math.max(1, (reply.length() + streamChunks - 1) / streamChunks);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleep(firstChunkDelay);
+        for (int start = 0; start < reply.length(); start += chunkSize) {
+            if (start > 0) {
+                sleep(chunkInterval);
+            }
+            String chunk = reply.substring(start, Math.min(reply.length(), start + chunkSize));
+            out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void handleLessonPlan(HttpExchange exchange, Map<String, Object> requestBody)
+            throws IOException, InterruptedException {
+        sleep(lessonPlanLatency.sample());
+
+        String knowledgePoint = String.valueOf(requestBody.get("knowledgePoint"));
+        Map<String, Object> lessonPlan = new LinkedHashMap<>();
+        lessonPlan.put("title", knowledgePoint + "教学设计");
+        lessonPlan.put("objectives", List.of(
+                Map.of("type", "知识与技能", "description", "理解" + knowledgePoint + "的基本概念"),
+                Map.of("type", "过程与方法", "description", "通过探究活动掌握" + knowledgePoint + "的方法"),
+                Map.of("type", "情感态度与价值观", "description", "体会数学与生活的联系")));
+        lessonPlan.put("keyPoints", List.of(knowledgePoint + "的概念", knowledgePoint + "的应用"));
+        lessonPlan.put("difficultPoints", List.of(knowledgePoint + "的灵活运用"));
+        lessonPlan.put("resources", List.of(Map.of("name", "课件", "url", "")));
+        List<Map<String, Object>> process = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Map<String, Object> step = new HashMap<>();
+            step.put("stage", "环节" + i);
+            step.put("duration", 8);
+            step.put("activities", List.of("教师引导学生围绕" + knowledgePoint + "开展第" + i + "个活动"));
+            process.add(step);
+        }
+        lessonPlan.put("teachingProcess", process);
+        lessonPlan.put("evaluation", "通过课堂练习检测学生对" + knowledgePoint + "的掌握情况");
+        lessonPlan.put("extension", "课后查阅" + knowledgePoint + "在生活中的应用实例");
+        writeJson(exchange, 200, lessonPlan);
+    }
+
+    /**
+     * 回复长度与用户消息相关，使响应大小接近真实分布
+     */
+    private static String reply(Map<String, Object> requestBody) {
+        String message = String.valueOf(requestBody.getOrDefault("message", ""));
+        StringBuilder reply = new StringBuilder("这是针对“").append(message).append("”的模拟回复。");
+        int sentences = 3 + ThreadLocalRandom.current().nextInt(8);
+        for (int i = 0; i < sentences; i++) {
+            reply.append("第").append(i + 1).append("点：请结合课本例题理解相关概念，并尝试独立完成练习。");
+        }
+        return reply.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readBody(InputStream in) throws IOException {
+        byte[] bytes = in.readAllBytes();
+        return bytes.length == 0 ? Map.of() : objectMapper.readValue(bytes, Map.class);
+    }
+
+    private static void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StubHandler {
+        void handle(HttpExchange exchange, Map<String, Object> requestBody) throws IOException, InterruptedException;
+    }
+}
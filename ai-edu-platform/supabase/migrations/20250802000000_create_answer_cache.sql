@@ -0,0 +1,30 @@
+-- 步骤 1: 创建对话语义缓存表
+-- 后端在调用多智能体服务前，先按问题向量在此表中查找相似问题的已有回答
+-- context_fingerprint 为问题之前最近几条对话的摘要哈希，只有上下文相同的问题才会共享回答
+create table if not exists public.answer_cache (
+  id bigserial primary key,
+  question text not null, -- 原始问题
+  context_fingerprint text not null, -- 对话上下文指纹
+  embedding_model text not null, -- 生成向量的模型，不同模型的向量不可混用
+  embedding vector(1536) not null, -- 问题的向量，维度与 documents 表一致
+  answer text not null, -- AI回答，兜底回复不会写入
+  hit_count integer not null default 0,
+  created_at timestamptz not null default now(),
+  last_hit_at timestamptz,
+  expires_at timestamptz not null -- 每条缓存单独的过期时间
+);
+
+-- 步骤 2: 创建索引
+-- 查找时按上下文指纹和模型过滤，再在同一指纹的行内精确计算余弦距离，取最相似的一条
+-- 不建全局向量索引：HNSW 只返回 ef_search 个全局近邻再过滤，指纹较少见的追问几乎总会被过滤掉，缓存静默未命中。
+-- 代价是首轮提问共用同一指纹（chat:none），占表中大部分行，这类查找会对这些行做精确距离扫描，
+-- 耗时随缓存行数线性增长；行数由 expires_at 过期清理限制
+create index if not exists idx_answer_cache_fingerprint
+  on public.answer_cache (context_fingerprint, embedding_model);
+-- 用于清理过期缓存
+create index if not exists idx_answer_cache_expires_at
+  on public.answer_cache (expires_at);
+
+-- 步骤 3: 启用 RLS
+-- 缓存只由后端服务读写，不为客户端角色创建任何策略
+alter table public.answer_cache enable row level security;
@@ -0,0 +1,10 @@
+-- 步骤 1: 为 documents 表的向量列创建HNSW索引
+-- 20250730000000 迁移中的IVFFlat索引被注释掉了，match_documents 一直是对全部向量的顺序扫描
+-- HNSW不需要像IVFFlat那样在建索引前准备好足够的数据，数据量变化后也不必重建就能保持召回率（需要 pgvector 0.5.0 及以上）
+-- m 和 ef_construction 使用 pgvector 的默认值；数据量增大后可通过后端管理接口按需调整并重建
+create index if not exists idx_documents_embedding
+  on public.documents using hnsw (embedding vector_cosine_ops)
+  with (m = 16, ef_construction = 64);
+
+-- 步骤 2: 更新统计信息，使查询规划器按新的索引选择执行计划
+analyze public.documents;
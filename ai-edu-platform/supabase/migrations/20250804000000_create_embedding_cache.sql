@@ -0,0 +1,21 @@
+-- 步骤 1: 创建向量缓存表
+-- 后端向量化文本前先按模型和规范化文本的哈希在此表中查找，相同的文本块和重复的查询不再调用向量化服务
+-- 同一模型对相同文本的向量是确定的，缓存行不会过时；但检索查询的向量也会写入缓存，表会随用户输入持续增长，
+-- 后端按最近使用时间定期删除长期未使用的行，更换模型后旧模型的行也会因此被清理
+create table if not exists public.embedding_cache (
+  embedding_model text not null, -- 生成向量的模型
+  content_hash text not null, -- 规范化文本（Unicode NFC、合并空白）的 SHA-256
+  embedding vector(1536) not null, -- 维度与 documents 表一致
+  created_at timestamptz not null default now(),
+  last_used_at timestamptz not null default now(), -- 最近一次命中时间，后端每天最多刷新一次
+  primary key (embedding_model, content_hash)
+);
+
+-- 步骤 2: 创建索引
+-- 用于清理长期未使用的缓存
+create index if not exists idx_embedding_cache_last_used_at
+  on public.embedding_cache (last_used_at);
+
+-- 步骤 3: 启用 RLS
+-- 缓存只由后端服务读写，不为客户端角色创建任何策略
+alter table public.embedding_cache enable row level security;
@@ -0,0 +1,59 @@
+-- 步骤 1: 创建中文分词辅助函数
+-- 内置的 simple 配置不会切分中文，连续的中文会成为一个词，无法匹配其中的术语
+-- 这里把每段连续的中日韩文字拆成重叠的双字词（单字的段保留单字），其他字符保持不变，
+-- 例如 "勾股定理的证明" 变为 "勾股 股定 定理 理的 的证 证明"；查询文本使用同一函数处理，保证两边切分一致
+create or replace function public.cjk_bigram_text(input text)
+returns text
+language plpgsql
+immutable
+parallel safe
+as $$
+declare
+  result text := '';
+  ch text;
+  prev text := null;
+  run_length integer := 0;
+begin
+  if input is null then
+    return '';
+  end if;
+  for i in 1..char_length(input) loop
+    ch := substr(input, i, 1);
+    if ch ~ '[㐀-䶿一-鿿]' then
+      if run_length = 0 then
+        result := result || ' ';
+      else
+        result := result || prev || ch || ' ';
+      end if;
+      prev := ch;
+      run_length := run_length + 1;
+    else
+      if run_length = 1 then
+        result := result || prev || ' ';
+      end if;
+      prev := null;
+      run_length := 0;
+      result := result || ch;
+    end if;
+  end loop;
+  if run_length = 1 then
+    result := result || prev;
+  end if;
+  return result;
+end;
+$$;
+
+-- 步骤 2: 为 documents 表添加全文检索列
+-- 生成列随 content 自动更新，导入数据时无需额外处理；添加列时会重写整张表
+alter table public.documents
+  add column if not exists content_tsv tsvector
+  generated always as (to_tsvector('simple', public.cjk_bigram_text(content))) stored;
+
+-- 步骤 3: 创建索引
+-- GIN 索引用于全文检索，jsonb_path_ops 索引用于按 metadata 过滤（metadata @> '{"grade": "七年级"}'）
+create index if not exists idx_documents_content_tsv
+  on public.documents using gin (content_tsv);
+create index if not exists idx_documents_metadata
+  on public.documents using gin (metadata jsonb_path_ops);
+
+analyze public.documents;